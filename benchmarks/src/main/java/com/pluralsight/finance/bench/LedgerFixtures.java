@@ -0,0 +1,89 @@
+package com.pluralsight.finance.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+// Generates ledger files of a given size for the benchmarks
+public final class LedgerFixtures {
+    static final int VENDOR_COUNT = 5000;  // Distinct vendors in a generated ledger
+    static final int DESCRIPTION_COUNT = 20000;  // Distinct descriptions in a generated ledger
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private LedgerFixtures() {
+    }
+
+    // Writes a ledger of the given number of rows, spread over the last five years, most
+    // recent first like the application writes it. Returns the path of the CSV file.
+    public static Path generateLedger(int rows) throws IOException {
+        Path directory = Files.createTempDirectory("ledger-bench");
+        Path csv = directory.resolve("transactions.csv");
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        long spanSeconds = 5L * 365 * 24 * 60 * 60;
+        long step = Math.max(1, spanSeconds / rows);
+        try (BufferedWriter bw = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            bw.write("date|time|description|vendor|amount\n");
+            for (int i = 0; i < rows; i++) {
+                LocalDateTime ldt = now.minusSeconds(i * step + random.nextInt((int) Math.min(step, Integer.MAX_VALUE)));
+                long cents = random.nextInt(200000) - 100000;
+                bw.write(ldt.format(DATE) + "|" + ldt.format(TIME) + "|Invoice " + random.nextInt(DESCRIPTION_COUNT) + " paid|"
+                        + vendorName(random.nextInt(VENDOR_COUNT)) + "|" + (cents / 100) + "." + String.format("%02d", Math.abs(cents % 100)) + "\n");
+            }
+        }
+        return csv;
+    }
+
+    // Name of the generated vendor with the given number
+    public static String vendorName(int number) {
+        return "Vendor " + number;
+    }
+
+    // Removes a generated ledger directory and everything in it
+    public static void delete(Path csv) throws IOException {
+        try (Stream<Path> files = Files.walk(csv.getParent())) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    // Removes the segment, journal and temp files a ledger wrote next to its CSV file, leaving
+    // the ledger as it was before its first start
+    public static void deleteAllButCsv(Path csv) throws IOException {
+        try (Stream<Path> files = Files.list(csv.getParent())) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                if (!path.equals(csv)) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    // Removes the journal files a ledger wrote next to its CSV file, keeping its segments
+    public static void deleteJournals(Path csv) throws IOException {
+        try (Stream<Path> files = Files.list(csv.getParent())) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                if (path.getFileName().toString().contains(".journal")) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    // Replaces System.out with a stream that discards everything, so report benchmarks measure
+    // the ledger rather than the terminal. Returns the original stream.
+    public static PrintStream silenceStdout() {
+        PrintStream original = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        return original;
+    }
+}
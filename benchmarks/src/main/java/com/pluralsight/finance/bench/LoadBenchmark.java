@@ -0,0 +1,117 @@
+package com.pluralsight.finance.bench;
+
+import com.pluralsight.finance.Ledger;
+import com.pluralsight.finance.LedgerQuery;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Cold loads of a generated ledger through Ledger.loadTransactionsFromCSV: the first start,
+// which imports the CSV file, and later starts, which read the yearly segment files. The ledger
+// a benchmark opened is closed after the measurement, so the segment files the first start
+// writes in the background are not timed.
+@BenchmarkMode({Mode.SingleShotTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class LoadBenchmark {
+    // A CSV file without segment or journal files, as before the first start
+    @State(Scope.Benchmark)
+    public static class CsvOnly {
+        @Param({"10000", "1000000", "10000000"})
+        public int rows;
+
+        Path csv;
+        Ledger ledger;  // Opened by the benchmark, closed after it
+        private PrintStream stdout;
+
+        @Setup(Level.Trial)
+        public void generate() throws IOException {
+            csv = LedgerFixtures.generateLedger(rows);
+            stdout = LedgerFixtures.silenceStdout();
+        }
+
+        // The previous invocation left segment and journal files; without this every
+        // invocation after the first would read those instead of the CSV file
+        @Setup(Level.Invocation)
+        public void reset() throws IOException {
+            LedgerFixtures.deleteAllButCsv(csv);
+        }
+
+        @TearDown(Level.Invocation)
+        public void closeLedger() {
+            ledger.close();
+        }
+
+        @TearDown(Level.Trial)
+        public void cleanUp() throws IOException {
+            System.setOut(stdout);
+            LedgerFixtures.delete(csv);
+        }
+    }
+
+    // A ledger that has been started once, so its history is in yearly segment files
+    @State(Scope.Benchmark)
+    public static class Segmented {
+        @Param({"10000", "1000000", "10000000"})
+        public int rows;
+
+        Path csv;
+        Ledger ledger;  // Opened by the benchmark, closed after it
+        private PrintStream stdout;
+
+        @Setup(Level.Trial)
+        public void generate() throws IOException {
+            csv = LedgerFixtures.generateLedger(rows);
+            stdout = LedgerFixtures.silenceStdout();
+            Ledger first = new Ledger(csv.toString());
+            first.loadTransactionsFromCSV();
+            first.close();  // Waits for the segment files
+        }
+
+        // Starts every invocation from the segments alone, with no journal to replay
+        @Setup(Level.Invocation)
+        public void reset() throws IOException {
+            LedgerFixtures.deleteJournals(csv);
+        }
+
+        @TearDown(Level.Invocation)
+        public void closeLedger() {
+            ledger.close();
+        }
+
+        @TearDown(Level.Trial)
+        public void cleanUp() throws IOException {
+            System.setOut(stdout);
+            LedgerFixtures.delete(csv);
+        }
+    }
+
+    // First start: parses the whole CSV file
+    @Benchmark
+    public Ledger importCsv(CsvOnly state) {
+        state.ledger = new Ledger(state.csv.toString());
+        state.ledger.loadTransactionsFromCSV();
+        return state.ledger;
+    }
+
+    // Later start: reads only the current year's segment
+    @Benchmark
+    public Ledger loadCurrentYear(Segmented state) {
+        state.ledger = new Ledger(state.csv.toString());
+        state.ledger.loadTransactionsFromCSV();
+        return state.ledger;
+    }
+
+    // Later start followed by a report over all of history, which reads every segment
+    @Benchmark
+    public LedgerQuery loadFullHistory(Segmented state) {
+        state.ledger = new Ledger(state.csv.toString());
+        state.ledger.loadTransactionsFromCSV();
+        return state.ledger.query();
+    }
+}
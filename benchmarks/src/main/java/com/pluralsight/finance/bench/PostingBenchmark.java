@@ -0,0 +1,52 @@
+package com.pluralsight.finance.bench;
+
+import com.pluralsight.finance.Ledger;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Posting a deposit or payment, including the write to disk
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class PostingBenchmark {
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    private Path csv;
+    private Ledger ledger;
+    private PrintStream stdout;
+    private final String[] deposit = {"Invoice 1 paid", "Vendor 1", "125.50"};
+    private final String[] payment = {"Office supplies", "Vendor 2", "-42.10"};
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        csv = LedgerFixtures.generateLedger(rows);
+        stdout = LedgerFixtures.silenceStdout();
+        ledger = new Ledger(csv.toString());
+        ledger.loadTransactionsFromCSV();
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws IOException {
+        ledger.close();
+        System.setOut(stdout);
+        LedgerFixtures.delete(csv);
+    }
+
+    @Benchmark
+    public void addDeposit() {
+        ledger.addDeposit(deposit);
+    }
+
+    @Benchmark
+    public void makePayment() {
+        ledger.makePayment(payment);
+    }
+}
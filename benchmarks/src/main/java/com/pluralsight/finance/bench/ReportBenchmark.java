@@ -0,0 +1,132 @@
+package com.pluralsight.finance.bench;
+
+import com.pluralsight.finance.Ledger;
+import com.pluralsight.finance.LedgerAggregator;
+import com.pluralsight.finance.LedgerQuery;
+import com.pluralsight.finance.ReportWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+// Read paths: the queries behind the ledger screens, every report and the custom search,
+// written through a ReportWriter the way the menus print them. Output goes to a discarding
+// stream so only the ledger and formatting work is measured. Each report
+// runs both with the report cache, where every call after the first is a cache hit, and
+// without it, where every call plans and scans the store.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class ReportBenchmark {
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    @Param({"true", "false"})
+    public boolean cached;  // Whether the ledger keeps report results
+
+    private Path csv;
+    private Ledger ledger;
+    private PrintStream stdout;
+    private ReportWriter writer;  // Formats rows like the menus, into a discarding stream
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        csv = LedgerFixtures.generateLedger(rows);
+        stdout = LedgerFixtures.silenceStdout();
+        writer = new ReportWriter(OutputStream.nullOutputStream());
+        ledger = new Ledger(csv.toString(), cached);
+        ledger.loadTransactionsFromCSV();
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws IOException {
+        ledger.close();
+        System.setOut(stdout);
+        LedgerFixtures.delete(csv);
+    }
+
+    // Writes the whole report the way Menus.displayReport does, one page after another
+    // through the report writer, and returns the number of rows written
+    private int report(LedgerQuery query) {
+        int written = query.writeTo(writer, query.rows(), Integer.MAX_VALUE);
+        writer.flush();
+        return written;
+    }
+
+    // Every transaction, as the ledger screen's "all entries" shows it
+    @Benchmark
+    public int allEntries() {
+        return report(ledger.query());
+    }
+
+    @Benchmark
+    public int deposits() {
+        return report(ledger.query().deposits());
+    }
+
+    @Benchmark
+    public int payments() {
+        return report(ledger.query().payments());
+    }
+
+    @Benchmark
+    public int monthToDate() {
+        return report(ledger.monthToDate());
+    }
+
+    @Benchmark
+    public int previousMonth() {
+        return report(ledger.previousMonth());
+    }
+
+    @Benchmark
+    public int yearToDate() {
+        return report(ledger.yearToDate());
+    }
+
+    @Benchmark
+    public int previousYear() {
+        return report(ledger.previousYear());
+    }
+
+    // Menus.searchByVendor: the vendor is checked against the index before the report runs
+    @Benchmark
+    public int vendor() {
+        String vendor = LedgerFixtures.vendorName(17);
+        return ledger.hasVendor(vendor) ? report(ledger.query().vendor(vendor)) : 0;
+    }
+
+    // The query Menus.customSearch builds for a filled-in date range and description
+    @Benchmark
+    public int customSearch() {
+        LocalDate today = LocalDate.now();
+        return report(ledger.query(today.minusYears(2))
+                .between(today.minusYears(2), today.minusYears(1))
+                .descriptionContains("Invoice 123"));
+    }
+
+    // The same search with an amount, which no index covers
+    @Benchmark
+    public int customSearchByAmount() {
+        return report(ledger.query().amountCents(12550));
+    }
+
+    // Parallel group-by over the whole ledger
+    @Benchmark
+    public void groupByVendor(Blackhole blackhole) {
+        blackhole.consume(ledger.query().groupBy(LedgerAggregator.GroupBy.VENDOR));
+    }
+
+    @Benchmark
+    public void groupByMonth(Blackhole blackhole) {
+        blackhole.consume(ledger.query().groupBy(LedgerAggregator.GroupBy.MONTH));
+    }
+}
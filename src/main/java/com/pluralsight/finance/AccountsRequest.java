@@ -0,0 +1,60 @@
+package com.pluralsight.finance;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+// A summary across every account of a LedgerManager, shared by the accounts command and the
+// server's /accounts endpoint. By default it lists each account's totals over its whole
+// history; --balance DATE lists each account's balance at the end of the day instead, and
+// --vendors the totals per vendor across all accounts.
+public class AccountsRequest {
+    private LocalDate balanceDate;  // Day of the balances, or null
+    private boolean vendors;
+
+    // Parses the options, throwing IllegalArgumentException (or DateTimeParseException) for bad ones
+    public static AccountsRequest parse(List<String> options) {
+        AccountsRequest request = new AccountsRequest();
+        for (int i = 0; i < options.size(); i++) {
+            String option = options.get(i);
+            switch (option) {
+                case "--balance":
+                    if (i + 1 >= options.size()) {
+                        throw new IllegalArgumentException("--balance needs a value");
+                    }
+                    request.balanceDate = LocalDate.parse(options.get(++i));
+                    break;
+                case "--vendors":
+                    request.vendors = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown accounts option: " + option);
+            }
+        }
+        if (request.balanceDate != null && request.vendors) {
+            throw new IllegalArgumentException("--balance and --vendors cannot be combined");
+        }
+        return request;
+    }
+
+    // Runs the summary on every account in parallel and returns it as a table, one line per row
+    public String run(LedgerManager manager) {
+        StringBuilder text = new StringBuilder();
+        if (balanceDate != null) {
+            text.append(String.format("%-20s %15s\n", "Account", "Balance"));
+            long total = 0;
+            for (Map.Entry<String, Long> balance : manager.balancesAsOf(balanceDate).entrySet()) {
+                text.append(String.format("%-20s %15s\n", balance.getKey(), Money.format(balance.getValue())));
+                total += balance.getValue();
+            }
+            text.append(String.format("%-20s %15s\n", "Total", Money.format(total)));
+            return text.toString();
+        }
+        List<LedgerTotals> totals = vendors ? manager.vendorTotals() : manager.accountTotals();
+        text.append(LedgerTotals.formatHeader(vendors ? "Vendor" : "Account")).append('\n');
+        for (LedgerTotals row : totals) {
+            text.append(row).append('\n');
+        }
+        return text.toString();
+    }
+}
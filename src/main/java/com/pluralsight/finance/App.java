@@ -2,6 +2,10 @@ package com.pluralsight.finance;
 
 public class App {
     public static void main(String[] args) {
+        if (args.length > 0) {
+            // Headless command mode for scripts, e.g. report --ytd --vendor "Year Up" --format csv
+            System.exit(new CommandLine(System.in, System.out, System.err).run(args));
+        }
         Menus menus = new Menus();
         menus.displayHomeScreen();
     }
@@ -0,0 +1,43 @@
+package com.pluralsight.finance;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Replaces files so that a crash or a full disk leaves either the old or the new version on
+// disk, never a mix: the new content is written to a temp file next to the target, forced to
+// disk, and renamed over the target. The rename itself is made durable by forcing the directory.
+public final class AtomicFiles {
+    private AtomicFiles() {
+    }
+
+    // Temp file for a new version of the target, on the same file system so the rename is atomic
+    public static Path tempPath(Path target) {
+        return target.resolveSibling(target.getFileName() + ".tmp");
+    }
+
+    // Renames a finished and fsynced temp file over the target
+    public static void commit(Path temp, Path target) throws IOException {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(target);
+    }
+
+    // Deletes the file and makes the deletion durable before returning
+    public static void delete(Path path) throws IOException {
+        Files.delete(path);
+        syncDirectory(path);
+    }
+
+    // Forces the directory holding the file, so renames, creations and deletions in it survive a crash
+    public static void syncDirectory(Path file) {
+        Path directory = file.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Some platforms cannot open a directory; renames are still atomic there
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.pluralsight.finance;
+
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Headless commands for scripts and cron jobs: reports and imports run straight against the
+// ledger, with no menus, prompts or console colors. The ledger is loaded once per process,
+// so a batch of commands shares one load and the report cache.
+public class CommandLine {
+    private static final String USAGE = """
+            Usage: [--ledger FILE | --accounts DIR] <command> [options]
+
+            Commands:
+              report   Prints the matching transactions, most recent first
+                         --account NAME       account to report on (with --accounts); without
+                                              it the report covers every account
+                         --all | --mtd | --previous-month | --ytd | --previous-year
+                         --from yyyy-MM-dd    --to yyyy-MM-dd  (both inclusive)
+                         --vendor NAME        --description TEXT    --amount AMOUNT
+                         --deposits | --payments
+                         --limit N            only the N most recent transactions
+                         --format table|csv   --output FILE  (default: standard output)
+              import   Posts every transaction in the given CSV files (header line optional):
+                       import [--account NAME] FILE...  (with --accounts, a new NAME is created)
+              accounts Prints the totals of every account (with --accounts)
+                         --balance yyyy-MM-dd  each account's balance at the end of the day
+                         --vendors             totals per vendor across every account
+              batch    Runs one command per line from a file, or standard input if none is given
+              serve    Keeps the ledger loaded and serves reports and postings over HTTP on
+                       localhost until stopped: serve [--port PORT]  (default 8080). With
+                       --accounts every account is served under /accounts/NAME/, and
+                       /report and /accounts cover every account
+              help     Prints this message
+
+            Without --ledger the default ledger file is used. --accounts DIR hosts every
+            NAME.csv in the directory as an account in one process; accounts are loaded when
+            first used and the least recently used are dropped when memory runs short.
+            Exit status: 0 on success, 1 if a command failed or an import skipped rows it could
+            not parse, 2 for invalid arguments.
+            """;
+    private static final int OK = 0;
+    private static final int FAILED = 1;
+    private static final int INVALID_ARGUMENTS = 2;
+    private static final int DEFAULT_PORT = 8080;
+
+    private final InputStream in;  // Commands for batch when no file is given
+    private final PrintStream out;  // Reports and confirmations
+    private final PrintStream err;  // Error messages
+    private String ledgerPath;  // Ledger file from --ledger, or null for the default one
+    private Ledger ledger;  // Loaded by the first command that needs it
+    private String accountsDirectory;  // Directory from --accounts, or null for a single ledger
+    private LedgerManager manager;  // Created by the first command that needs it, with --accounts
+
+    public CommandLine(InputStream in, PrintStream out, PrintStream err) {
+        this.in = in;
+        this.out = out;
+        this.err = err;
+    }
+
+    // Runs the command given as program arguments, closes the ledger and returns the exit status
+    public int run(String[] args) {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        try {
+            ledgerPath = takeOption(arguments, "--ledger");
+            accountsDirectory = takeOption(arguments, "--accounts");
+            if (ledgerPath != null && accountsDirectory != null) {
+                throw new IllegalArgumentException("--ledger and --accounts cannot be combined");
+            }
+            if (accountsDirectory != null && !Files.isDirectory(Paths.get(accountsDirectory))) {
+                throw new IllegalArgumentException("No such directory: " + accountsDirectory);
+            }
+        } catch (IllegalArgumentException e) {
+            err.println("error: " + e.getMessage());
+            return INVALID_ARGUMENTS;
+        }
+        try {
+            return execute(arguments, true);
+        } finally {
+            if (ledger != null) {
+                ledger.close();  // Imports are durable once this returns
+            }
+            if (manager != null) {
+                manager.close();
+            }
+        }
+    }
+
+    private int execute(List<String> arguments, boolean topLevel) {
+        if (arguments.isEmpty()) {
+            err.print(USAGE);
+            return INVALID_ARGUMENTS;
+        }
+        List<String> options = arguments.subList(1, arguments.size());
+        try {
+            switch (arguments.get(0)) {
+                case "report":
+                    report(options);
+                    return OK;
+                case "import":
+                    return importFiles(options);
+                case "accounts":
+                    accounts(options);
+                    return OK;
+                case "batch":
+                    if (!topLevel) {
+                        throw new IllegalArgumentException("batch cannot be run from a batch");
+                    }
+                    return batch(options);
+                case "serve":
+                    if (!topLevel) {
+                        throw new IllegalArgumentException("serve cannot be run from a batch");
+                    }
+                    return serve(options);
+                case "help":
+                case "--help":
+                    out.print(USAGE);
+                    return OK;
+                default:
+                    throw new IllegalArgumentException("Unknown command: " + arguments.get(0) + " (try help)");
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            err.println("error: " + e.getMessage());
+            return INVALID_ARGUMENTS;
+        } catch (RuntimeException e) {
+            err.println("error: " + (e.getCause() != null ? e.getCause() : e.getMessage()));
+            return FAILED;
+        }
+    }
+
+    // Runs the report described by the options and streams its rows to standard output or a
+    // file. With --accounts and no --account it runs on every account and merges the rows.
+    private void report(List<String> options) {
+        String account = takeOption(options, "--account");
+        ReportRequest request = ReportRequest.parse(options);
+        if (accountsDirectory != null && account == null) {
+            List<Transaction> transactions = request.run(manager());
+            writeReport(request, stream -> request.writeTo(transactions, stream));
+            return;
+        }
+        withLedger(account, ledger -> {
+            writeReport(request, stream -> request.writeTo(ledger, stream));
+            return null;
+        });
+    }
+
+    private void writeReport(ReportRequest request, Consumer<OutputStream> writer) {
+        if (request.getOutput() == null) {
+            writer.accept(out);
+            return;
+        }
+        try (OutputStream file = new FileOutputStream(request.getOutput())) {
+            writer.accept(file);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Prints the totals or balances of every account
+    private void accounts(List<String> options) {
+        if (accountsDirectory == null) {
+            throw new IllegalArgumentException("accounts needs --accounts DIR");
+        }
+        AccountsRequest request = AccountsRequest.parse(options);
+        out.print(request.run(manager()));
+    }
+
+    // Posts each file as one batch; a file that fails stops the command. Rows that cannot be
+    // parsed are skipped and listed, and make the command fail once every file is posted.
+    private int importFiles(List<String> files) {
+        String account = takeOption(files, "--account");
+        if (files.isEmpty()) {
+            throw new IllegalArgumentException("import needs at least one file");
+        }
+        for (String file : files) {
+            if (!Files.isRegularFile(Paths.get(file))) {
+                throw new IllegalArgumentException("No such file: " + file);
+            }
+        }
+        if (accountsDirectory != null && account != null) {
+            manager().addAccount(account);
+        }
+        return withLedger(account, ledger -> {
+            int status = OK;
+            for (String file : files) {
+                List<String> rejected = new ArrayList<>();
+                int imported = ledger.importCSV(file, rejected);
+                out.println("Imported " + imported + " transactions from " + file);
+                if (!rejected.isEmpty()) {
+                    err.println("error: " + rejected.size() + " rows skipped in " + file + ", they could not be parsed:");
+                    for (String line : rejected) {
+                        err.println("  " + line);
+                    }
+                    status = FAILED;
+                }
+            }
+            return status;
+        });
+    }
+
+    // Runs every command in the file, one per line, and keeps going after a failed one.
+    // Blank lines and lines starting with # are skipped. Returns the worst exit status.
+    private int batch(List<String> options) {
+        if (options.size() > 1) {
+            throw new IllegalArgumentException("batch takes at most one file");
+        }
+        int status = OK;
+        try (BufferedReader reader = options.isEmpty()
+                ? new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(options.get(0)), StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.trim().startsWith("#")) {
+                    continue;
+                }
+                List<String> arguments;
+                try {
+                    arguments = split(line);
+                    if (arguments.contains("--ledger") || arguments.contains("--accounts")) {
+                        throw new IllegalArgumentException("--ledger and --accounts can only be given before batch");
+                    }
+                } catch (IllegalArgumentException e) {
+                    err.println("error: line " + lineNumber + ": " + e.getMessage());
+                    status = Math.max(status, INVALID_ARGUMENTS);
+                    continue;
+                }
+                status = Math.max(status, execute(arguments, false));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        out.flush();
+        return status;
+    }
+
+    // Serves the ledger, or every account, until the process is stopped (Ctrl+C), then closes it
+    private int serve(List<String> options) {
+        int port = DEFAULT_PORT;
+        if (!options.isEmpty()) {
+            if (options.size() != 2 || !options.get(0).equals("--port")) {
+                throw new IllegalArgumentException("serve takes only --port PORT");
+            }
+            port = Integer.parseInt(options.get(1));
+        }
+        Ledger ledger = accountsDirectory == null ? ledger() : null;
+        LedgerManager manager = accountsDirectory == null ? null : manager();
+        LedgerServer server;
+        try {
+            server = ledger != null ? new LedgerServer(ledger, port) : new LedgerServer(manager, port);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        CountDownLatch stopped = new CountDownLatch(1);
+        this.ledger = null;  // Closed by the shutdown hook from here on, not by run()
+        this.manager = null;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            if (ledger != null) {
+                ledger.close();  // Here rather than in run(), which the JVM may not wait for
+            } else {
+                manager.close();
+            }
+            stopped.countDown();
+        }));
+        server.start();
+        out.println("Serving " + (ledger != null ? "the ledger" : "the accounts in " + accountsDirectory)
+                + " on http://localhost:" + server.getPort() + "/");
+        out.flush();
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return OK;
+    }
+
+    // Splits a command line on whitespace; double quotes group words, e.g. --vendor "Year Up"
+    static List<String> split(String line) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        boolean quoted = false;
+        boolean inWord = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+                inWord = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (inWord) {
+                    words.add(word.toString());
+                    word.setLength(0);
+                    inWord = false;
+                }
+            } else {
+                word.append(c);
+                inWord = true;
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unclosed quote");
+        }
+        if (inWord) {
+            words.add(word.toString());
+        }
+        return words;
+    }
+
+    // Runs the action on the ledger of the account given with --account, or on the single
+    // ledger when the accounts are not in use
+    private <T> T withLedger(String account, Function<Ledger, T> action) {
+        if (accountsDirectory == null) {
+            if (account != null) {
+                throw new IllegalArgumentException("--account needs --accounts DIR");
+            }
+            return action.apply(ledger());
+        }
+        if (account == null) {
+            throw new IllegalArgumentException("--account is required with --accounts");
+        }
+        if (!manager().getAccounts().contains(account)) {
+            throw new IllegalArgumentException("Unknown account: " + account);
+        }
+        return manager().withLedger(account, action);
+    }
+
+    // Removes the option and its value from the arguments and returns the value, or null if
+    // the option is not there
+    private static String takeOption(List<String> arguments, String option) {
+        int index = arguments.indexOf(option);
+        if (index < 0) {
+            return null;
+        }
+        if (index + 1 >= arguments.size()) {
+            throw new IllegalArgumentException(option + " needs a value");
+        }
+        String value = arguments.remove(index + 1);
+        arguments.remove(index);
+        return value;
+    }
+
+    // Memory budget of the accounts: half of the heap the JVM may grow to
+    private LedgerManager manager() {
+        if (manager == null) {
+            manager = new LedgerManager(accountsDirectory, Runtime.getRuntime().maxMemory() / 2);
+        }
+        return manager;
+    }
+
+    private Ledger ledger() {
+        if (ledger == null) {
+            ledger = ledgerPath == null ? new Ledger() : new Ledger(ledgerPath);
+            ledger.loadTransactionsFromCSV();
+        }
+        return ledger;
+    }
+}
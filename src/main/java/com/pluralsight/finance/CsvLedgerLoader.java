@@ -0,0 +1,316 @@
+package com.pluralsight.finance;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Loads a pipe-separated ledger file by memory-mapping it, cutting it into line-aligned chunks
+// and parsing the chunks in parallel on a fork-join pool. Rows keep their file order. Lines
+// that cannot be parsed are skipped and kept, so the caller can report them.
+public class CsvLedgerLoader {
+    private static final long CHUNK_SIZE = 8 * 1024 * 1024;  // Target bytes per parse task
+    private static final long NOT_FIXED_WIDTH = Long.MIN_VALUE;  // Date or time not in the fixed layout
+
+    private final ForkJoinPool pool;  // Pool the chunk parsers run on
+    private String header;  // First line of the last loaded file
+    private List<String> rejected = new ArrayList<>();  // Lines of the last loaded file that could not be parsed
+
+    // Constructor uses the common fork-join pool, which is sized to the number of cores
+    public CsvLedgerLoader() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public CsvLedgerLoader(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    // Header line of the last loaded file, or null if the file was empty or started with a row
+    public String getHeader() {
+        return header;
+    }
+
+    // Lines of the last loaded file that could not be parsed, in file order
+    public List<String> getRejected() {
+        return rejected;
+    }
+
+    // Reads every transaction of the given file, after its header line if it has one
+    public List<Transaction> load(Path path) throws IOException {
+        return loadColumns(path).toTransactions();
+    }
+
+    // Reads every row straight into dictionary-encoded columns, without creating a Transaction
+    // or a String per row. Rows keep their file order. The first line is skipped only if it is
+    // the date|time|description|vendor|amount header, so a file without one loses no row.
+    public TransactionStore.Columns loadColumns(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            header = null;
+            rejected = new ArrayList<>();
+            if (size == 0) {
+                return new TransactionStore.Columns(0, 0, 0);
+            }
+
+            // A header ends at the first newline; the rows start right after it
+            long dataStart = nextLineStart(channel, 0, size);
+            String firstLine = readFirstLine(channel, dataStart);
+            if (firstLine.trim().equalsIgnoreCase(Ledger.CSV_HEADER)) {
+                header = firstLine;
+            } else {
+                dataStart = 0;
+            }
+
+            // Cut the rest of the file into chunks that each end on a line boundary
+            List<long[]> chunks = new ArrayList<>();
+            long start = dataStart;
+            while (start < size) {
+                long end = start + CHUNK_SIZE >= size ? size : nextLineStart(channel, start + CHUNK_SIZE, size);
+                chunks.add(new long[]{start, end});
+                start = end;
+            }
+
+            List<Chunk> parsed = pool.invoke(new ChunkTask(channel, chunks, 0, chunks.size()));
+            for (Chunk chunk : parsed) {
+                rejected.addAll(chunk.rejected);
+            }
+            return merge(parsed);
+        }
+    }
+
+    // Concatenates the parsed chunks and their dictionaries. A value that appears in several
+    // chunks keeps one entry per chunk here; the store folds those into one when it encodes the batch.
+    private static TransactionStore.Columns merge(List<Chunk> parsed) {
+        int total = 0;
+        int vendorCount = 0;
+        int descriptionCount = 0;
+        for (Chunk chunk : parsed) {
+            total += chunk.size;
+            vendorCount += chunk.vendors.size();
+            descriptionCount += chunk.descriptions.size();
+        }
+
+        TransactionStore.Columns columns = new TransactionStore.Columns(total, vendorCount, descriptionCount);
+        int row = 0;
+        int vendorBase = 0;
+        int descriptionBase = 0;
+        for (Chunk chunk : parsed) {
+            System.arraycopy(chunk.epochSeconds, 0, columns.epochSeconds, row, chunk.size);
+            System.arraycopy(chunk.amountCents, 0, columns.amountCents, row, chunk.size);
+            for (int i = 0; i < chunk.size; i++) {
+                columns.vendorIds[row + i] = vendorBase + chunk.vendorIds[i];
+                columns.descriptionIds[row + i] = descriptionBase + chunk.descriptionIds[i];
+            }
+            System.arraycopy(chunk.vendors.values(), 0, columns.vendors, vendorBase, chunk.vendors.size());
+            System.arraycopy(chunk.descriptions.values(), 0, columns.descriptions, descriptionBase, chunk.descriptions.size());
+            vendorBase += chunk.vendors.size();
+            descriptionBase += chunk.descriptions.size();
+            row += chunk.size;
+        }
+        return columns;
+    }
+
+    // Returns the offset just past the next newline at or after from, or size if there is none
+    private static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+        long position = from;
+        while (position < size) {
+            long window = Math.min(64 * 1024, size - position);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, window);
+            for (int i = 0; i < window; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += window;
+        }
+        return size;
+    }
+
+    private static String readFirstLine(FileChannel channel, long dataStart) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, dataStart);
+        byte[] bytes = new byte[(int) dataStart];
+        buffer.get(bytes);
+        int length = bytes.length;
+        while (length > 0 && (bytes[length - 1] == '\n' || bytes[length - 1] == '\r')) {
+            length--;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    // Splits the chunk list in half until a single chunk is left, then parses it. Tasks are
+    // never serialized, although RecursiveTask is Serializable.
+    @SuppressWarnings("serial")
+    private static class ChunkTask extends RecursiveTask<List<Chunk>> {
+        private final FileChannel channel;
+        private final List<long[]> chunks;
+        private final int from;
+        private final int to;
+
+        ChunkTask(FileChannel channel, List<long[]> chunks, int from, int to) {
+            this.channel = channel;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Chunk> compute() {
+            if (to - from <= 1) {
+                List<Chunk> result = new ArrayList<>();
+                if (to > from) {
+                    long[] chunk = chunks.get(from);
+                    try {
+                        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunk[0], chunk[1] - chunk[0]);
+                        result.add(parseChunk(buffer));
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+                return result;
+            }
+            int middle = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(channel, chunks, from, middle);
+            ChunkTask right = new ChunkTask(channel, chunks, middle, to);
+            left.fork();
+            List<Chunk> result = right.compute();
+            result.addAll(0, left.join());
+            return result;
+        }
+    }
+
+    // Rows parsed from one chunk, with vendors and descriptions encoded against the chunk's own
+    // dictionaries
+    static class Chunk {
+        int size;
+        long[] epochSeconds = new long[1024];
+        long[] amountCents = new long[1024];
+        int[] vendorIds = new int[1024];
+        int[] descriptionIds = new int[1024];
+        final StringDictionary vendors = new StringDictionary();
+        final StringDictionary descriptions = new StringDictionary();
+        final List<String> rejected = new ArrayList<>();  // Lines that could not be parsed
+
+        void add(long epochSecond, long cents, int vendorId, int descriptionId) {
+            if (size == epochSeconds.length) {
+                int capacity = size * 2;
+                epochSeconds = Arrays.copyOf(epochSeconds, capacity);
+                amountCents = Arrays.copyOf(amountCents, capacity);
+                vendorIds = Arrays.copyOf(vendorIds, capacity);
+                descriptionIds = Arrays.copyOf(descriptionIds, capacity);
+            }
+            epochSeconds[size] = epochSecond;
+            amountCents[size] = cents;
+            vendorIds[size] = vendorId;
+            descriptionIds[size] = descriptionId;
+            size++;
+        }
+    }
+
+    // Parses every line in a mapped chunk with a hand-written pipe tokenizer. Text fields are
+    // encoded from their bytes, so a value that repeats is never decoded twice.
+    static Chunk parseChunk(MappedByteBuffer buffer) {
+        Chunk chunk = new Chunk();
+        int limit = buffer.limit();
+        int[] pipes = new int[5];  // Positions of the field separators on the current line, up to five
+        int[] hashes = new int[5];  // Hash of the field before each separator
+        byte[] scratch = new byte[256];  // Reused buffer for decoding fields on the slow path
+        int lineStart = 0;
+        while (lineStart < limit) {
+            // Find the end of the line and the separators in one pass, hashing the fields on the way
+            int pipeCount = 0;
+            int hash = StringDictionary.HASH_SEED;
+            int lineEnd = lineStart;
+            while (lineEnd < limit) {
+                byte b = buffer.get(lineEnd);
+                if (b == '\n') {
+                    break;
+                }
+                if (b == '|' && pipeCount < 5) {
+                    hashes[pipeCount] = hash;
+                    pipes[pipeCount++] = lineEnd;
+                    hash = StringDictionary.HASH_SEED;
+                } else {
+                    hash = StringDictionary.hashStep(hash, b);
+                }
+                lineEnd++;
+            }
+            int next = lineEnd + 1;
+            int contentEnd = lineEnd;
+            if (contentEnd > lineStart && buffer.get(contentEnd - 1) == '\r') {
+                contentEnd--;
+            }
+
+            if (contentEnd > lineStart) {
+                try {
+                    if (pipeCount < 4) {
+                        throw new IllegalArgumentException("Malformed ledger line: " + text(buffer, lineStart, contentEnd, scratch));
+                    }
+                    // Like Transaction.fromCSVFormat, anything after a fifth separator is ignored
+                    int amountEnd = pipeCount > 4 ? pipes[4] : contentEnd;
+                    long amountCents = Money.parseCents(buffer, pipes[3] + 1, amountEnd);
+                    long epochSecond = parseEpochSecond(buffer, lineStart, pipes[0], pipes[0] + 1, pipes[1]);
+                    if (epochSecond == NOT_FIXED_WIDTH) {
+                        // Not fixed width, use the slow path
+                        epochSecond = LedgerTime.parseEpochSecond(text(buffer, lineStart, pipes[0], scratch),
+                                text(buffer, pipes[0] + 1, pipes[1], scratch));
+                    }
+                    int descriptionId = chunk.descriptions.encode(buffer, pipes[1] + 1, pipes[2], hashes[2]);
+                    int vendorId = chunk.vendors.encode(buffer, pipes[2] + 1, pipes[3], hashes[3]);
+                    chunk.add(epochSecond, amountCents, vendorId, descriptionId);
+                } catch (RuntimeException e) {
+                    chunk.rejected.add(text(buffer, lineStart, contentEnd, scratch));  // Skip the row, keep the rest of the chunk
+                }
+            }
+            lineStart = next;
+        }
+        return chunk;
+    }
+
+    // Parses yyyy-MM-dd and HH:mm:ss at fixed positions, or returns NOT_FIXED_WIDTH if the
+    // fields do not have exactly that shape
+    private static long parseEpochSecond(MappedByteBuffer buffer, int dateStart, int dateEnd, int timeStart, int timeEnd) {
+        if (dateEnd - dateStart != 10 || timeEnd - timeStart != 8
+                || buffer.get(dateStart + 4) != '-' || buffer.get(dateStart + 7) != '-'
+                || buffer.get(timeStart + 2) != ':' || buffer.get(timeStart + 5) != ':') {
+            return NOT_FIXED_WIDTH;
+        }
+        int year = digits(buffer, dateStart, 4);
+        int month = digits(buffer, dateStart + 5, 2);
+        int day = digits(buffer, dateStart + 8, 2);
+        int hour = digits(buffer, timeStart, 2);
+        int minute = digits(buffer, timeStart + 3, 2);
+        int second = digits(buffer, timeStart + 6, 2);
+        if ((year | month | day | hour | minute | second) < 0) {
+            return NOT_FIXED_WIDTH;
+        }
+        return LedgerTime.epochSecond(year, month, day, hour, minute, second);
+    }
+
+    // Reads count ASCII digits as a number, or returns -1 if any byte is not a digit
+    private static int digits(MappedByteBuffer buffer, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    // Decodes a UTF-8 field, reusing the scratch buffer for anything that fits in it
+    private static String text(MappedByteBuffer buffer, int start, int end, byte[] scratch) {
+        int length = end - start;
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        buffer.get(start, bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,140 @@
+package com.pluralsight.finance;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+
+// Trigram inverted index over the distinct descriptions of a ledger. Each lower-cased
+// description is split into three-character grams; a substring search intersects the
+// description lists of the query's grams and then confirms the few candidates left.
+// Descriptions are indexed by their dictionary id, with a separate posting list of rows.
+// Like the vendor index, it is built the first time a description search runs and is then
+// brought up to date from each searching query's snapshot, under the index's own lock.
+public class DescriptionIndex {
+    private final ArrayList<String> folded;  // Lower-cased description for each description id
+    private final HashMap<Long, IntList> descriptionsByGram;  // Trigram to the description ids containing it
+    private final Postings rows;  // Row ids for each description id
+    private int indexedRows;  // Rows below this have been added to the postings
+
+    public DescriptionIndex() {
+        this.folded = new ArrayList<>();
+        this.descriptionsByGram = new HashMap<>();
+        this.rows = new Postings();
+    }
+
+    // Number of the snapshot's rows posted under any of the description ids
+    public synchronized int countRows(LedgerSnapshot snapshot, IntList descriptionIds) {
+        catchUp(snapshot);
+        return rows.count(descriptionIds, snapshot.size());
+    }
+
+    // The snapshot's rows posted under any of the description ids, not sorted
+    public synchronized int[] getRows(LedgerSnapshot snapshot, IntList descriptionIds) {
+        catchUp(snapshot);
+        return rows.collect(descriptionIds, snapshot.size());
+    }
+
+    // Returns the ids of every description in the snapshot that contains the text (case-insensitive)
+    public synchronized IntList findDescriptions(LedgerSnapshot snapshot, String text) {
+        catchUp(snapshot);
+        IntList matches = findDescriptions(text);
+        if (matches.size() > 0 && matches.get(matches.size() - 1) >= snapshot.descriptionCount()) {
+            // Drop descriptions that were added after the snapshot was taken (ids are ascending)
+            IntList visible = new IntList(matches.size());
+            for (int i = 0; i < matches.size() && matches.get(i) < snapshot.descriptionCount(); i++) {
+                visible.add(matches.get(i));
+            }
+            return visible;
+        }
+        return matches;
+    }
+
+    // Indexes the rows added since the last catch-up, and any new descriptions they use
+    private void catchUp(LedgerSnapshot snapshot) {
+        for (int row = indexedRows; row < snapshot.size(); row++) {
+            int descriptionId = snapshot.getDescriptionId(row);
+            while (folded.size() <= descriptionId) {
+                indexDescription(folded.size(), snapshot.getDescriptionName(folded.size()));
+            }
+            rows.add(descriptionId, row);
+        }
+        indexedRows = Math.max(indexedRows, snapshot.size());
+    }
+
+    private IntList findDescriptions(String text) {
+        String query = text.toLowerCase(Locale.ROOT);
+        IntList matches = new IntList();
+        if (query.length() < 3) {
+            // Too short for a trigram, check the distinct descriptions directly
+            for (int id = 0; id < folded.size(); id++) {
+                if (folded.get(id).contains(query)) {
+                    matches.add(id);
+                }
+            }
+            return matches;
+        }
+
+        // Start from the rarest gram of the query and keep only ids present in every other list
+        IntList[] lists = new IntList[query.length() - 2];
+        IntList smallest = null;
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = descriptionsByGram.get(gram(query, i));
+            if (lists[i] == null) {
+                return matches;  // A gram that never occurs means nothing can match
+            }
+            if (smallest == null || lists[i].size() < smallest.size()) {
+                smallest = lists[i];
+            }
+        }
+        for (int i = 0; i < smallest.size(); i++) {
+            int id = smallest.get(i);
+            boolean inAll = true;
+            for (IntList list : lists) {
+                if (list != smallest && !contains(list, id)) {
+                    inAll = false;
+                    break;
+                }
+            }
+            // Grams only show the letters occur; confirm they occur together and in order
+            if (inAll && folded.get(id).contains(query)) {
+                matches.add(id);
+            }
+        }
+        return matches;
+    }
+
+    private void indexDescription(int descriptionId, String description) {
+        String lower = description.toLowerCase(Locale.ROOT);
+        folded.add(lower);
+        for (int i = 0; i + 3 <= lower.length(); i++) {
+            IntList ids = descriptionsByGram.computeIfAbsent(gram(lower, i), key -> new IntList(1));
+            // A description repeating a gram is only listed once, and ids arrive in ascending order
+            if (ids.size() == 0 || ids.get(ids.size() - 1) != descriptionId) {
+                ids.add(descriptionId);
+            }
+        }
+    }
+
+    // Packs the three characters starting at index into one key
+    private static long gram(String text, int index) {
+        return ((long) text.charAt(index) << 32) | ((long) text.charAt(index + 1) << 16) | text.charAt(index + 2);
+    }
+
+    // Description id lists are ascending, so membership is a binary search
+    private static boolean contains(IntList list, int value) {
+        int low = 0;
+        int high = list.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int found = list.get(middle);
+            if (found < value) {
+                low = middle + 1;
+            } else if (found > value) {
+                high = middle - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,51 @@
+package com.pluralsight.finance;
+
+// One group of a group-by report: how many transactions fell in it and the sum, smallest and
+// largest of their amounts
+public class GroupTotals {
+    private final String label;  // Vendor, month, year or description keyword
+    private final int count;
+    private final long sumCents;
+    private final long minCents;
+    private final long maxCents;
+
+    public GroupTotals(String label, int count, long sumCents, long minCents, long maxCents) {
+        this.label = label;
+        this.count = count;
+        this.sumCents = sumCents;
+        this.minCents = minCents;
+        this.maxCents = maxCents;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getSumCents() {
+        return sumCents;
+    }
+
+    public long getMinCents() {
+        return minCents;
+    }
+
+    public long getMaxCents() {
+        return maxCents;
+    }
+
+    // Column titles matching toString
+    public static String formatHeader(String labelTitle) {
+        return String.format("%-20s %8s %15s %12s %12s", labelTitle, "Count", "Sum", "Min", "Max");
+    }
+
+    // Override the toString method to print the group as one row of a report
+    @Override
+    public String toString() {
+        return String.format("%-20s %8d %15s %12s %12s", label, count,
+                Money.format(sumCents), Money.format(minCents), Money.format(maxCents));
+    }
+}
@@ -0,0 +1,43 @@
+package com.pluralsight.finance;
+
+import java.util.Arrays;
+
+// Growable list of primitive ints, used for posting lists of row ids
+public class IntList {
+    private int[] values;  // Backing array, only the first size entries are in use
+    private int size;  // Number of values in the list
+
+    public IntList() {
+        this(8);
+    }
+
+    public IntList(int capacity) {
+        this.values = new int[Math.max(1, capacity)];
+    }
+
+    // Appends a value to the end of the list
+    public void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length + (values.length >> 1) + 1);
+        }
+        values[size++] = value;
+    }
+
+    public int get(int index) {
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Backing array for callers that scan or reorder the values in place
+    public int[] elements() {
+        return values;
+    }
+
+    // Copy of the values in use
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
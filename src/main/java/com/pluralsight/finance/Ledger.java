@@ -1,79 +1,501 @@
 package com.pluralsight.finance;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// The ledger can be used from many threads at once. Postings are queued on a lock-free queue
+// and applied in batches by whichever posting thread holds the write lock, which also appends
+// them to the journal. Reports and queries never take the lock: they read an immutable
+// snapshot of the store, so a long report does not hold up postings and never sees a
+// half-applied one.
 public class Ledger {
-    // Ledger attributes: start and end date for the ledger, list of transactions, and CSV format string
-    private ArrayList<Transaction> transactions;
-    private String csvLineFormat;
-
-    // Constructor initializes transactions list, and null for date and format fields
+    // Default location of the ledger file and the tuning values for the journal
+    private static final String CSV_PATH = "./src/main/resources/transactions.csv";
+    static final String CSV_HEADER = "date|time|description|vendor|amount";
+    private static final int GROUP_COMMIT_SIZE = 32;  // Pending journal appends that force an fsync
+    private static final long GROUP_COMMIT_MILLIS = 50;  // Longest time an append waits for its fsync
+    private static final int COMPACTION_THRESHOLD = 1000;  // Journal entries that trigger a background compaction
+    private static final long SNAPSHOT_INTERVAL_SECONDS = 60;  // How often journaled postings are folded into the segment
+
+    // Ledger attributes: columnar store of transactions, and CSV format string
+    private final TransactionStore store;
+    private volatile String csvLineFormat;
+    private String csvPath;  // CSV file imported on first start and used for exports
+    private LedgerPartitions segments;  // Binary files holding the compacted transactions, one per year
+    private TreeSet<Integer> unloadedYears;  // Years with a segment file that are not in the store yet
+    private volatile long loadedFromEpochSecond;  // Every transaction from here on is in the store
+    private TreeSet<Integer> dirtyYears;  // Years that received postings since the last snapshot
+    private TransactionJournal journal;  // Append-only log of transactions posted since the last compaction
+    private ScheduledExecutorService compactor;  // Background thread that writes segment snapshots and exports
+    private Future<?> pendingCompaction;  // Compaction currently running, if any
+    private final ConcurrentLinkedQueue<Transaction> pendingPostings;  // Postings not yet applied to the store
+    private final ReentrantLock writeLock;  // Held while changing the store, the journal or the segment
+    private final LedgerMetrics metrics;  // Latencies and counters of every ledger operation, also published over JMX
+    private final ReportCache reportCache;  // Results of recent queries, dropped when a posting matches them
+
+    // Constructor initializes the transaction store, and null for the format field
     public Ledger() {
-        this.transactions = new ArrayList<>();
+        this(CSV_PATH);
+    }
+
+    // Constructor for a ledger kept in a different file; the journal and segment sit next to it
+    public Ledger(String csvPath) {
+        this(csvPath, true);
+    }
+
+    // Constructor that can turn the report cache off, so every report runs against the store
+    public Ledger(String csvPath, boolean cacheReports) {
+        this.metrics = new LedgerMetrics();
+        this.store = new TransactionStore(metrics);
         this.csvLineFormat = null;
+        this.csvPath = csvPath;
+        String basePath = csvPath.replaceFirst("\\.csv$", "");
+        this.segments = new LedgerPartitions(basePath);
+        this.unloadedYears = new TreeSet<>();
+        this.loadedFromEpochSecond = Long.MAX_VALUE;
+        this.dirtyYears = new TreeSet<>();
+        this.journal = new TransactionJournal(basePath + ".journal", GROUP_COMMIT_SIZE, GROUP_COMMIT_MILLIS, metrics);
+        this.compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ledger-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pendingPostings = new ConcurrentLinkedQueue<>();
+        this.writeLock = new ReentrantLock();
+        this.reportCache = cacheReports ? new ReportCache() : new ReportCache(0);
+        metrics.register(Paths.get(csvPath).toAbsolutePath().normalize().toString());
+    }
+
+    // Operation latencies and counters of this ledger
+    public LedgerMetrics getMetrics() {
+        return metrics;
+    }
+
+    // Approximate heap held by the loaded transactions, used to budget memory across ledgers
+    public long getEstimatedBytes() {
+        return store.estimatedBytes();
+    }
+
+    // Number of transactions loaded so far
+    public int size() {
+        return store.size();
     }
 
-    // Method to load transactions from a CSV file into the ledger
+    // Method to load the ledger, then replay any journaled transactions that were posted after
+    // the last compaction. Only the segment files of the current year (and of any year the
+    // journal reaches back to) are read; older years are read when a report first needs them.
+    // Without segment files the CSV file is imported and split into segments in the background
+    // for the next start.
     public void loadTransactionsFromCSV() {
-        String path = "./src/main/resources/transactions.csv";  // Path to the CSV file
+        writeLock.lock();
+        try {
+            long start = System.nanoTime();
+            load();
+            metrics.recordSince(LedgerMetrics.LOAD, start);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void load() {
+        List<String> rejected = new ArrayList<>();
+        List<Transaction> compacting = TransactionJournal.readEntries(journal.getCompactingPath(), rejected);
+        List<Transaction> live = TransactionJournal.readEntries(journal.getPath(), rejected);
+        if (!rejected.isEmpty()) {
+            // Damaged lines are moved aside before a compaction can retire the journal they are in
+            journal.setAside(rejected);
+            metrics.add(LedgerMetrics.JOURNAL_REJECTED, rejected.size());
+            System.err.println("Skipped " + rejected.size() + " damaged journal entries; they are kept in " + journal.getRejectedPath());
+        }
         try {
-            FileReader fr = new FileReader(path);  // File reader to read CSV file
-            BufferedReader br = new BufferedReader(fr);  // Buffered reader for efficient reading
-
-            // Read the first line of the CSV to set the format for later writing (header)
-            csvLineFormat = br.readLine();
-
-            String line;  // Variable to hold each line read from the file
-            while ((line = br.readLine()) != null) {  // Read each line of the CSV after the header
-                // Split the CSV line into individual transaction details using '|' as delimiter
-                String[] details = line.split("[|]");
-                try {
-                    // Create a new Transaction object from the parsed details and add it to the list
-                    transactions.add(new Transaction(details[0], details[1], details[2], details[3], Double.parseDouble(details[4])));
-                } catch (NumberFormatException e) {
-                    e.printStackTrace();  // Handle any issues converting amount to a number
+            recoverInterruptedCompaction();
+            TreeSet<Integer> years = segments.years();
+            if (years.isEmpty()) {
+                importAll();
+            } else {
+                Files.deleteIfExists(segments.legacyPath());  // Left over from a finished migration
+                csvLineFormat = CSV_HEADER;
+                unloadedYears = years;
+                long from = LedgerPartitions.yearStart(LocalDate.now().getYear());
+                for (Transaction t : compacting) {
+                    from = Math.min(from, t.getEpochSecond());
                 }
+                for (Transaction t : live) {
+                    from = Math.min(from, t.getEpochSecond());
+                }
+                loadSegmentsFrom(from);  // The journal's years must be complete before they are rewritten
             }
-            // Close the reader after reading
-            br.close();
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException(e);  // Handle case where the file is not found
         } catch (IOException e) {
             throw new RuntimeException(e);  // Handle general I/O exceptions
         }
+
+        // Replay the journal tail: first a journal that was being compacted, then the live one.
+        // A compaction cut short by a crash is finished in the background from the rows it covered.
+        if (Files.exists(journal.getCompactingPath())) {
+            store.addAll(compacting);
+            TreeSet<Integer> compactedYears = yearsOf(compacting);
+            LedgerSnapshot compacted = store.snapshot();
+            pendingCompaction = compactor.submit(() -> writeSegments(compacted, compactedYears, true));
+        }
+        store.addAll(live);
+        dirtyYears.addAll(yearsOf(live));
+        metrics.add(LedgerMetrics.ROWS_LOADED, compacting.size() + live.size());
+        journal.open();
+        compactor.scheduleWithFixedDelay(this::snapshotPeriodically, SNAPSHOT_INTERVAL_SECONDS, SNAPSHOT_INTERVAL_SECONDS, TimeUnit.SECONDS);
     }
 
-    // Private method to update the transactions back into a CSV file after making any changes
-    private void updateTransactionsInCSV() {
-        sortLedgerByMostRecent();
-        String path = "./src/main/resources/transactions.csv";  // Output path for updated CSV
+    // Reads the whole ledger from the CSV file, or from the single segment file of earlier
+    // versions, and splits it into yearly segments in the background
+    private void importAll() throws IOException {
+        if (Files.exists(segments.legacyPath())) {
+            store.addColumns(LedgerSegmentFile.read(segments.legacyPath()));
+            csvLineFormat = CSV_HEADER;
+        } else {
+            // Map the file and parse it in parallel chunks straight into columns, keeping the header for later writes
+            CsvLedgerLoader loader = new CsvLedgerLoader();
+            store.addColumns(loader.loadColumns(Paths.get(csvPath)));
+            csvLineFormat = loader.getHeader() == null ? CSV_HEADER : loader.getHeader();
+            if (!loader.getRejected().isEmpty()) {
+                metrics.add(LedgerMetrics.ROWS_REJECTED, loader.getRejected().size());
+                System.err.println("Skipped " + loader.getRejected().size() + " rows of " + csvPath + " that could not be parsed");
+            }
+        }
+        loadedFromEpochSecond = Long.MIN_VALUE;
+        metrics.add(LedgerMetrics.ROWS_LOADED, store.size());
+
+        // Only the imported rows go in the segments; journaled rows are replayed on top of them
+        LedgerSnapshot imported = store.snapshot();
+        compactor.submit(() -> {
+            writeSegments(imported, LedgerPartitions.yearsOf(imported), false);
+            try {
+                Files.deleteIfExists(segments.legacyPath());
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    // Makes sure every transaction from the given time on is in the store, reading the segment
+    // files of the years that are still missing. Cheap when they are already loaded.
+    private void loadSegmentsFrom(long epochSecond) {
+        if (epochSecond >= loadedFromEpochSecond) {
+            return;
+        }
+        writeLock.lock();
         try {
-            // Create a file writer and buffered writer to write transactions to a new CSV file
-            FileWriter fw = new FileWriter(path);
-            BufferedWriter bw = new BufferedWriter(fw);
+            int fromYear = LedgerTime.year(epochSecond);
+            for (int year : new ArrayList<>(unloadedYears.tailSet(fromYear))) {
+                long start = System.nanoTime();
+                TransactionStore.Columns columns = segments.read(year);
+                store.addColumns(columns);
+                unloadedYears.remove(year);
+                metrics.add(LedgerMetrics.ROWS_LOADED, columns.size());
+                metrics.recordSince(LedgerMetrics.SEGMENT_LOAD, start);
+            }
+            long loadedFrom = unloadedYears.isEmpty() ? Long.MIN_VALUE : LedgerPartitions.yearStart(fromYear);
+            loadedFromEpochSecond = Math.min(loadedFromEpochSecond, loadedFrom);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
 
-            // Write the header line (format) first
-            bw.write(csvLineFormat + "\n");
+    private static TreeSet<Integer> yearsOf(Collection<Transaction> transactions) {
+        TreeSet<Integer> years = new TreeSet<>();
+        for (Transaction t : transactions) {
+            years.add(LedgerTime.year(t.getEpochSecond()));
+        }
+        return years;
+    }
 
-            // Write each transaction to the CSV file in the correct format
-            for (Transaction t : transactions) {
-                bw.write(t.toCSVFormat() + "\n");
-            }
+    // Background snapshot: folds whatever was posted since the last one into the segment file,
+    // so a restart only has a short journal to replay
+    private void snapshotPeriodically() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            e.printStackTrace();  // Keep the schedule running; the next snapshot retries
+        }
+    }
+
+    // Finishes or rolls back a snapshot that was interrupted by a crash. Deleting the
+    // compacting journal is the commit point: while it exists the temp files do not count,
+    // once it is gone they hold every transaction and only need to be renamed. The first
+    // split into segments has no journal to retire; its temp files count once the first of
+    // them has been renamed, which happens only after all of them are written.
+    private void recoverInterruptedCompaction() throws IOException {
+        boolean committed = !Files.exists(journal.getCompactingPath()) && !segments.years().isEmpty();
+        segments.recover(committed);
+    }
 
-            // Close the writer after writing
-            bw.close();
-            System.out.println("Ledger updated...");  // Confirmation message
+    // Private method to write the given years of a snapshot to their segment files. Each year
+    // goes to a temp file, and the temp files replace the segments once the journal they cover
+    // (if any) has been retired. The retirement must be on disk before the renames, or a crash
+    // in between could replay the journal on top of segments that already hold it.
+    private void writeSegments(LedgerSnapshot snapshot, Collection<Integer> years, boolean retiresJournal) {
+        try {
+            long start = System.nanoTime();
+            long bytes = segments.writeTemps(snapshot, years);  // Written, checksummed and fsynced
+            metrics.add(LedgerMetrics.SNAPSHOT_BYTES, bytes);
+            metrics.recordSince(LedgerMetrics.SNAPSHOT, start);
+            if (retiresJournal) {
+                AtomicFiles.delete(journal.getCompactingPath());
+            }
+            segments.commitTemps(years);
         } catch (IOException e) {
             throw new RuntimeException(e);  // Handle any issues during writing
         }
     }
 
+    // Writes the whole ledger to a CSV file, most recent first, in the Date|Time|Description|Vendor|Amount layout.
+    // The file is replaced atomically: until the new version is complete and on disk, the old one stays in place.
+    public void exportTransactionsToCSV(String path) {
+        loadSegmentsFrom(Long.MIN_VALUE);
+        writeCSV(store.snapshot(), Paths.get(path));
+    }
+
+    // Same as exportTransactionsToCSV, but the file is written on the background thread so the
+    // caller does not wait for the disk. The export holds the ledger as it is now; postings
+    // made while it is written are not included.
+    public Future<?> exportInBackground(String path) {
+        loadSegmentsFrom(Long.MIN_VALUE);
+        LedgerSnapshot snapshot = store.snapshot();
+        return compactor.submit(() -> writeCSV(snapshot, Paths.get(path)));
+    }
+
+    private void writeCSV(LedgerSnapshot snapshot, Path path) {
+        Path temp = AtomicFiles.tempPath(path);
+        try {
+            long start = System.nanoTime();
+            try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+                ReportWriter writer = new ReportWriter(out);
+
+                // Write the header line (format) first
+                writer.writeLine(csvLineFormat);
+
+                // Write each transaction to the CSV file in the correct format
+                for (int i = 0; i < snapshot.size(); i++) {
+                    writer.writeLine(snapshot.get(snapshot.rowByMostRecent(i)).toCSVFormat());
+                }
+                writer.flush();
+                out.getFD().sync();  // On disk before it can replace the old file
+            }
+            metrics.add(LedgerMetrics.EXPORT_BYTES, Files.size(temp));
+            AtomicFiles.commit(temp, path);
+            metrics.recordSince(LedgerMetrics.EXPORT, start);
+        } catch (IOException | RuntimeException e) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e instanceof RuntimeException ? (RuntimeException) e : new RuntimeException(e);  // Handle any issues during writing
+        }
+    }
+
+    // Queues a new transaction and applies it. Threads posting at the same time combine: the
+    // one holding the write lock applies everything queued so far as one batch, and the others
+    // find their posting already applied once they get the lock. Either way the transaction is
+    // in the store and the journal when this returns. The transaction is checked first, the
+    // same way postAll checks a batch.
+    private void postTransaction(Transaction t) {
+        String problem = problemWith(t);
+        if (problem != null) {
+            throw new IllegalArgumentException("Transaction " + problem);
+        }
+        pendingPostings.add(t);
+        writeLock.lock();
+        try {
+            applyPendingPostings();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Moves every queued posting into the store and the journal. Called with the write lock held.
+    private void applyPendingPostings() {
+        ArrayList<Transaction> batch = new ArrayList<>();
+        Transaction t;
+        while ((t = pendingPostings.poll()) != null) {
+            batch.add(t);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        loadSegmentsFor(batch);
+        journal.appendAll(batch);
+        // Before the rows are published, so no report can see them and still be served a
+        // cached result without them
+        reportCache.invalidate(batch, store.size() + batch.size());
+        if (batch.size() == 1) {
+            store.add(batch.get(0));
+        } else {
+            store.addAll(batch);
+        }
+        metrics.add(LedgerMetrics.ROWS_INSERTED, batch.size());
+        metrics.recordSince(LedgerMetrics.INSERT, start);
+        compactIfNeeded();
+    }
+
+    // Posts a batch of transactions at once: they are checked first (nothing is posted if any
+    // of them is invalid), written to the journal together and made durable with a single
+    // fsync, then merged into the ledger as one sorted run. Returns the number posted.
+    public int postAll(Collection<Transaction> transactions) {
+        int index = 0;
+        for (Transaction t : transactions) {
+            index++;
+            String problem = problemWith(t);
+            if (problem != null) {
+                throw new IllegalArgumentException("Transaction " + index + " " + problem);
+            }
+        }
+        writeLock.lock();
+        try {
+            applyPendingPostings();  // Keep earlier single postings ahead of the batch in the journal
+            long start = System.nanoTime();
+            loadSegmentsFor(transactions);
+            journal.appendAll(transactions);
+            journal.sync();
+            reportCache.invalidate(transactions, store.size() + transactions.size());
+            store.addAll(transactions);
+            metrics.add(LedgerMetrics.ROWS_INSERTED, transactions.size());
+            metrics.recordSince(LedgerMetrics.INSERT, start);
+            compactIfNeeded();
+        } finally {
+            writeLock.unlock();
+        }
+        return transactions.size();
+    }
+
+    // Posts every transaction in a pipe-separated file with the same layout as the ledger file.
+    // Rows that cannot be parsed are skipped, counted in the metrics and added to rejected, so
+    // the caller can report them. Returns the number posted.
+    public int importCSV(String path, List<String> rejected) {
+        try {
+            long start = System.nanoTime();
+            CsvLedgerLoader loader = new CsvLedgerLoader();
+            List<Transaction> transactions = loader.load(Paths.get(path));
+            int posted = postAll(transactions);
+            rejected.addAll(loader.getRejected());
+            metrics.add(LedgerMetrics.ROWS_REJECTED, loader.getRejected().size());
+            metrics.recordSince(LedgerMetrics.IMPORT, start);
+            return posted;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Called with the write lock held before postings are applied. A posting dated in a year
+    // that is not loaded yet needs that year in the store, since the next snapshot rewrites
+    // the year's segment from the store.
+    private void loadSegmentsFor(Collection<Transaction> transactions) {
+        long earliest = Long.MAX_VALUE;
+        for (Transaction t : transactions) {
+            earliest = Math.min(earliest, t.getEpochSecond());
+        }
+        loadSegmentsFrom(earliest);
+        dirtyYears.addAll(yearsOf(transactions));
+    }
+
+    // Why the transaction could not be written back to the journal or the ledger file, or
+    // null if it can be posted
+    private static String problemWith(Transaction t) {
+        if (t == null) {
+            return "is missing";
+        } else if (!t.hasDate()) {
+            return "has no date and time";
+        } else if (!isValidField(t.getDescription()) || !isValidField(t.getVendor())) {
+            return "needs a description and vendor without '|' or line breaks";
+        }
+        return null;
+    }
+
+    private static boolean isValidField(String value) {
+        return value != null && !value.isBlank() && value.indexOf('|') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0;
+    }
+
+    // Called with the write lock held after postings have been applied
+    private void compactIfNeeded() {
+        // Compact once the journal reaches 1% of the ledger, so the cost of rewriting the segment stays amortized
+        if (journal.getEntryCount() >= Math.max(COMPACTION_THRESHOLD, store.size() / 100)) {
+            compact();
+        }
+    }
+
+    // Folds the journal into the segment files on the background compactor thread. Only the
+    // years that received postings are rewritten. The journal is rotated and the snapshot
+    // taken under the write lock, so the snapshot holds exactly the transactions of the
+    // retired journal; copying it out happens in the background.
+    public void compact() {
+        writeLock.lock();
+        try {
+            if (compactor.isShutdown()) {
+                return;  // The ledger is closed
+            }
+            if (pendingCompaction != null && !pendingCompaction.isDone()) {
+                return;  // A compaction is already running
+            }
+            if (journal.getEntryCount() == 0) {
+                return;  // Nothing posted since the last snapshot
+            }
+            if (!journal.rotate()) {
+                return;
+            }
+            LedgerSnapshot snapshot = store.snapshot();
+            TreeSet<Integer> years = dirtyYears;
+            dirtyYears = new TreeSet<>();
+            pendingCompaction = compactor.submit(() -> writeSegments(snapshot, years, true));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Flushes the journal and waits for running compactions and exports so nothing is left in flight
+    public void close() {
+        writeLock.lock();
+        try {
+            applyPendingPostings();
+            compactor.shutdown();  // Stops the periodic snapshots; already submitted writes still finish
+            journal.close();
+        } finally {
+            writeLock.unlock();
+        }
+        metrics.unregister();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Returns a copy of the ledger as Transaction objects, most recent first
     public ArrayList<Transaction> getTransactions() {
+        loadSegmentsFrom(Long.MIN_VALUE);
+        LedgerSnapshot snapshot = store.snapshot();
+        ArrayList<Transaction> transactions = new ArrayList<>(snapshot.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            int row = snapshot.rowByMostRecent(i);
+            transactions.add(snapshot.get(row));
+        }
         return transactions;
     }
 
@@ -83,14 +505,13 @@ public class Ledger {
         // Extract transaction details from the paymentInfo array
         String description = paymentInfo[0];
         String vendor = paymentInfo[1];
-        Double paymentAmount = Double.parseDouble(paymentInfo[2]);
+        long paymentAmount = Money.parseCents(paymentInfo[2]);
 
         // Create a new transaction object using current date and payment details
         Transaction t = new Transaction(ldt, description, vendor, paymentAmount);
 
-        // Add the new payment to the transactions list and update the CSV file
-        transactions.add(t);
-        updateTransactionsInCSV();
+        // Add the new payment to the transactions list and append it to the journal
+        postTransaction(t);
     }
 
     // Method to add a new deposit (income) transaction to the ledger
@@ -100,120 +521,189 @@ public class Ledger {
         // Extract transaction details from the depositInfo array
         String description = depositInfo[0];
         String vendor = depositInfo[1];
-        Double depositAmount = Double.parseDouble(depositInfo[2]);
+        long depositAmount = Money.parseCents(depositInfo[2]);
 
         // Create a new transaction object using current date and deposit details
         Transaction t = new Transaction(ldt, description, vendor, depositAmount);
 
-        // Add the new deposit to the transactions list and update the CSV file
-        transactions.add(t);
-        updateTransactionsInCSV();
+        // Add the new deposit to the transactions list and append it to the journal
+        postTransaction(t);
     }
 
-    // Method to display the entire ledger in the console
-    public void displayAllLedgerEntries() {
-        sortLedgerByMostRecent();  // Sort the transactions by the most recent first
-        // Print each transaction in the ledger
-        for (Transaction t : transactions) {
-            System.out.println(t);
-        }
+    // Starts a read-only query over the ledger as it is now, reading every year's segment
+    public LedgerQuery query() {
+        return queryFrom(Long.MIN_VALUE);
     }
 
-    // Displays only deposits (positive) entries from the ledger
-    public void displayDeposits() {
-        sortLedgerByMostRecent();  // Sort the transactions by the most recent first
-
-        // Print each transaction in the ledger
-        for (Transaction t : transactions) {
-            if (t.getAmount() > 0) {
-                System.out.println(t);
-            }
+    // Starts a query for transactions on or after the given day; segments of earlier years are
+    // not read. A null day reads every year, like query().
+    public LedgerQuery query(LocalDate from) {
+        if (from == null) {
+            return query();
         }
+        return queryFrom(LedgerPartitions.yearStart(from.getYear())).between(from, null);
     }
 
-    public void displayPayments() {
-        sortLedgerByMostRecent();  // Sort the transactions by the most recent first
-
-        // Print each transaction in the ledger
-        for (Transaction t : transactions) {
-            if (t.getAmount() < 0) {
-                System.out.println(t);
-            }
-        }
+    // Starts a query that only needs the transactions from the given time on, so older
+    // segments are left on disk
+    private LedgerQuery queryFrom(long epochSecond) {
+        loadSegmentsFrom(epochSecond);
+        return new LedgerQuery(store.snapshot(), metrics, reportCache);
     }
 
-    // Method to sort the ledger by the most recent transaction (in reverse order)
-    public void sortLedgerByMostRecent() {
-        // Create a comparator that compares transactions based on their date and time
-        Comparator<Transaction> comparator = (t1, t2) -> Integer.valueOf(t1.getIsoLocalDateTime().compareTo(t2.getIsoLocalDateTime()));
+    // Method to display the entire ledger in the console
+    public void displayAllLedgerEntries() {
+        // Print each transaction in the ledger, most recent first
+        printReport(query());
+    }
 
-        // Sort the transactions list in ascending order based on the comparator
-        Collections.sort(transactions, comparator);
+    // Displays only deposits (positive) entries from the ledger
+    public void displayDeposits() {
+        // Print each deposit in the ledger, most recent first
+        printReport(query().deposits());
+    }
 
-        // Reverse the order to make it descending (most recent first)
-        Collections.reverse(transactions);
+    public void displayPayments() {
+        // Print each payment in the ledger, most recent first
+        printReport(query().payments());
     }
 
     // Filter and display transactions from the current month to date
     public void filterMonthToDate() {
-        sortLedgerByMostRecent();
-        int monthValue = LocalDate.now().getMonthValue();
-        for (Transaction t : transactions) {
-            if (t.getIsoLocalDateTime().getMonthValue() == monthValue) {
-                System.out.println(t);
-            }
-        }
+        printReport(monthToDate());
     }
 
     // Filter and display transactions from the previous month
     public void filterByPreviousMonth() {
-        sortLedgerByMostRecent();
-        int previousMonthValue = LocalDate.now().getMonthValue() - 1;
-        if (previousMonthValue == 0) { // If current month is January, wrap value so it is December
-            previousMonthValue = 12;
-        }
-        for (Transaction t : transactions) {
-            if (t.getIsoLocalDateTime().getMonthValue() == previousMonthValue) {
-                System.out.println(t);
-            }
-        }
+        printReport(previousMonth());
     }
 
     // Filter and display transactions for the current year to date
     public void filterYearToDate() {
-        sortLedgerByMostRecent();
-        int yearValue = LocalDate.now().getYear();
-        for (Transaction t : transactions) {
-            if (t.getIsoLocalDateTime().getYear() == yearValue) {
-                System.out.println(t);
-            }
-        }
+        printReport(yearToDate());
     }
 
     // Filter and display transactions from the previous year
     public void filterByPreviousYear() {
-        sortLedgerByMostRecent();
-        int previousYearValue = LocalDate.now().getYear() - 1;
-        for (Transaction t : transactions) {
-            if (t.getIsoLocalDateTime().getYear() == previousYearValue) {
-                System.out.println(t);
-            }
+        printReport(previousYear());
+    }
+
+    // Filter and display transactions from the given vendor (case-insensitive)
+    public void filterByVendor(String input) {
+        // Look the vendor up in the store's vendor index instead of scanning every row
+        if (!hasVendor(input)) {
+            System.out.println("There are no vendors by that name in the ledger...");
+            return;
         }
+        printReport(query().vendor(input));
+    }
 
+    // Query for the transactions of the current month
+    public LedgerQuery monthToDate() {
+        LocalDate firstOfMonth = LocalDate.now().withDayOfMonth(1);
+        return range(firstOfMonth, firstOfMonth.plusMonths(1)).named("month to date");
     }
 
-    // Filter and display transactions from the previous year
-    public void filterByVendor(String input) {
-        sortLedgerByMostRecent();
-        boolean found = false;
-        for (Transaction t : transactions) {
-            if (t.getVendor().equalsIgnoreCase(input)) {
-                System.out.println(t);
-                found = true;
-            }
+    // Query for the transactions of the previous month
+    public LedgerQuery previousMonth() {
+        LocalDate firstOfMonth = LocalDate.now().withDayOfMonth(1);
+        return range(firstOfMonth.minusMonths(1), firstOfMonth).named("previous month");
+    }
+
+    // Query for the transactions of the current year
+    public LedgerQuery yearToDate() {
+        LocalDate firstOfYear = LocalDate.now().withDayOfYear(1);
+        return range(firstOfYear, firstOfYear.plusYears(1)).named("year to date");
+    }
+
+    // Query for the transactions of the previous year
+    public LedgerQuery previousYear() {
+        LocalDate firstOfYear = LocalDate.now().withDayOfYear(1);
+        return range(firstOfYear.minusYears(1), firstOfYear).named("previous year");
+    }
+
+    // Account balance at the end of the given day, in cents
+    public long balanceAsOf(LocalDate date) {
+        long start = System.nanoTime();
+        loadSegmentsFrom(Long.MIN_VALUE);  // Every earlier transaction counts towards the balance
+        long balance = store.snapshot().balanceBefore(TransactionStore.toEpochSecond(date.plusDays(1).atStartOfDay()));
+        metrics.recordSince(LedgerMetrics.REPORT + "balance", start);
+        return balance;
+    }
+
+    // Totals for each month of the given year
+    public List<LedgerTotals> monthlyTotals(int year) {
+        long start = System.nanoTime();
+        loadSegmentsFrom(LedgerPartitions.yearStart(year));
+        LedgerSnapshot snapshot = store.snapshot();
+        List<LedgerTotals> totals = new ArrayList<>(12);
+        LocalDate month = LocalDate.of(year, 1, 1);
+        for (int i = 0; i < 12; i++, month = month.plusMonths(1)) {
+            totals.add(totalsBetween(snapshot, month.toString().substring(0, 7), month, month.plusMonths(1)));
         }
-        if (!found) {
-            System.out.println("There are no vendors by that name in the ledger...");
+        metrics.recordSince(LedgerMetrics.REPORT + "monthly totals", start);
+        return totals;
+    }
+
+    // Totals for each year from the oldest transaction to the newest
+    public List<LedgerTotals> yearlyTotals() {
+        long startNanos = System.nanoTime();
+        loadSegmentsFrom(Long.MIN_VALUE);
+        LedgerSnapshot snapshot = store.snapshot();
+        List<LedgerTotals> totals = new ArrayList<>();
+        if (snapshot.size() == 0) {
+            return totals;
+        }
+        int firstYear = LedgerTime.year(snapshot.getEpochSecond(snapshot.rowAt(0)));
+        int lastYear = LedgerTime.year(snapshot.getEpochSecond(snapshot.rowByMostRecent(0)));
+        for (int year = firstYear; year <= lastYear; year++) {
+            LocalDate start = LocalDate.of(year, 1, 1);
+            totals.add(totalsBetween(snapshot, String.valueOf(year), start, start.plusYears(1)));
         }
+        metrics.recordSince(LedgerMetrics.REPORT + "yearly totals", startNanos);
+        return totals;
+    }
+
+    // Totals for each vendor, by name. Spellings that differ only in case are combined under
+    // the first spelling, like vendor searches.
+    public List<LedgerTotals> vendorTotals() {
+        long start = System.nanoTime();
+        loadSegmentsFrom(Long.MIN_VALUE);
+        LedgerSnapshot snapshot = store.snapshot();
+        TreeMap<String, LedgerTotals> byName = new TreeMap<>();
+        for (int vendorId = 0; vendorId < snapshot.vendorCount(); vendorId++) {
+            LedgerTotals totals = snapshot.vendorTotals(vendorId);
+            if (totals.getCount() > 0) {
+                byName.merge(totals.getLabel().toLowerCase(Locale.ROOT), totals, LedgerTotals::plus);
+            }
+        }
+        List<LedgerTotals> totals = new ArrayList<>(byName.values());
+        metrics.recordSince(LedgerMetrics.REPORT + "vendor totals", start);
+        return totals;
+    }
+
+    private static LedgerTotals totalsBetween(LedgerSnapshot snapshot, String label, LocalDate start, LocalDate endExclusive) {
+        return snapshot.totalsBetween(label, TransactionStore.toEpochSecond(start.atStartOfDay()),
+                TransactionStore.toEpochSecond(endExclusive.atStartOfDay()));
+    }
+
+    // Whether any transaction in the ledger is from the vendor (case-insensitive)
+    public boolean hasVendor(String vendor) {
+        loadSegmentsFrom(Long.MIN_VALUE);
+        return store.snapshot().findVendorIds(vendor).size() > 0;
+    }
+
+    // Transactions from the start date up to (not including) the end date. Only the segments
+    // from the start date's year on are needed, and the store is ordered by timestamp, so the
+    // matching rows are found with two binary searches.
+    private LedgerQuery range(LocalDate startDate, LocalDate endDate) {
+        return queryFrom(LedgerPartitions.yearStart(startDate.getYear())).between(startDate.atStartOfDay(), endDate.atStartOfDay());
+    }
+
+    // Writes the whole report to the console through one buffer, flushed once at the end
+    private void printReport(LedgerQuery query) {
+        ReportWriter writer = new ReportWriter(System.out);
+        query.writeTo(writer);
+        writer.flush();
     }
 }
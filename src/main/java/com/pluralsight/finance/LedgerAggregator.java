@@ -0,0 +1,214 @@
+package com.pluralsight.finance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntPredicate;
+
+// Group-by reports (count, sum, min and max of the amounts) over a ledger snapshot. Every row
+// is first mapped to a small group number, the candidate rows are cut into chunks that are
+// aggregated in parallel on a fork-join pool into primitive arrays indexed by group number,
+// and the arrays of the chunks are then added together.
+public class LedgerAggregator {
+    private static final int CHUNK_SIZE = 64 * 1024;  // Rows aggregated by one task
+
+    // What the rows are grouped by
+    public enum GroupBy {
+        VENDOR,  // Vendor name, ignoring case
+        MONTH,  // Calendar month, e.g. 2024-10
+        YEAR,  // Calendar year
+        KEYWORD  // First word of the description, ignoring case
+    }
+
+    private final ForkJoinPool pool;  // Pool the chunk tasks run on
+
+    // Constructor uses the common fork-join pool, which is sized to the number of cores
+    public LedgerAggregator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public LedgerAggregator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    // Aggregates the candidate rows that pass the filter. The candidates are sourceRows[from, to),
+    // or the positions from to to of the snapshot's time order when sourceRows is null. Groups
+    // come back in label order for vendors and keywords and in time order for months and years.
+    public List<GroupTotals> aggregate(LedgerSnapshot snapshot, int[] sourceRows, int from, int to,
+                                       IntPredicate filter, GroupBy by) {
+        Grouping grouping = new Grouping(snapshot, by);
+        // Grouping does not care about time order, so the whole ledger is read by row id, in memory order
+        boolean byRowId = sourceRows == null && from == 0 && to == snapshot.size();
+        Accumulator total = to <= from ? new Accumulator(grouping.labels.length)
+                : pool.invoke(new ChunkTask(snapshot, sourceRows, byRowId, from, to, filter, grouping));
+
+        List<GroupTotals> groups = new ArrayList<>();
+        for (int group : grouping.labelOrder) {
+            if (total.counts[group] > 0) {
+                groups.add(new GroupTotals(grouping.labels[group], total.counts[group], total.sums[group],
+                        total.mins[group], total.maxes[group]));
+            }
+        }
+        return groups;
+    }
+
+    // Maps rows to group numbers and holds the label of each group
+    private static class Grouping {
+        private final GroupBy by;
+        private final int[] groupByDictionaryId;  // Vendor or description id to group, for VENDOR and KEYWORD
+        private final int firstPeriod;  // Month or year number of group 0, for MONTH and YEAR
+        private final String[] labels;
+        private final Integer[] labelOrder;  // Group numbers in the order they are reported
+
+        Grouping(LedgerSnapshot snapshot, GroupBy by) {
+            this.by = by;
+            List<String> names = new ArrayList<>();
+            if (by == GroupBy.VENDOR || by == GroupBy.KEYWORD) {
+                // Each distinct folded name or keyword gets a group; the first spelling seen labels it
+                int count = by == GroupBy.VENDOR ? snapshot.vendorCount() : snapshot.descriptionCount();
+                HashMap<String, Integer> groups = new HashMap<>();
+                groupByDictionaryId = new int[count];
+                for (int id = 0; id < count; id++) {
+                    String name = by == GroupBy.VENDOR ? snapshot.getVendorName(id) : firstWord(snapshot.getDescriptionName(id));
+                    Integer group = groups.get(name.toLowerCase(Locale.ROOT));
+                    if (group == null) {
+                        group = names.size();
+                        groups.put(name.toLowerCase(Locale.ROOT), group);
+                        names.add(name);
+                    }
+                    groupByDictionaryId[id] = group;
+                }
+                firstPeriod = 0;
+            } else {
+                // One group per month or year between the oldest and newest transaction
+                groupByDictionaryId = null;
+                int first = snapshot.size() == 0 ? 0 : period(snapshot.getEpochSecond(snapshot.rowAt(0)));
+                int last = snapshot.size() == 0 ? -1 : period(snapshot.getEpochSecond(snapshot.rowAt(snapshot.size() - 1)));
+                for (int period = first; period <= last; period++) {
+                    names.add(by == GroupBy.YEAR ? String.valueOf(period)
+                            : String.format("%04d-%02d", Math.floorDiv(period, 12), Math.floorMod(period, 12) + 1));
+                }
+                firstPeriod = first;
+            }
+            labels = names.toArray(new String[0]);
+            labelOrder = new Integer[labels.length];
+            for (int i = 0; i < labelOrder.length; i++) {
+                labelOrder[i] = i;
+            }
+            if (groupByDictionaryId != null) {
+                Arrays.sort(labelOrder, (a, b) -> labels[a].compareToIgnoreCase(labels[b]));
+            }
+        }
+
+        int groupOf(LedgerSnapshot snapshot, int row) {
+            switch (by) {
+                case VENDOR:
+                    return groupByDictionaryId[snapshot.getVendorId(row)];
+                case KEYWORD:
+                    return groupByDictionaryId[snapshot.getDescriptionId(row)];
+                default:
+                    return period(snapshot.getEpochSecond(row)) - firstPeriod;
+            }
+        }
+
+        private int period(long epochSecond) {
+            return by == GroupBy.YEAR ? LedgerTime.year(epochSecond) : LedgerTime.yearMonth(epochSecond);
+        }
+
+        private static String firstWord(String description) {
+            String trimmed = description.trim();
+            int end = 0;
+            while (end < trimmed.length() && !Character.isWhitespace(trimmed.charAt(end))) {
+                end++;
+            }
+            return end == 0 ? "(none)" : trimmed.substring(0, end);
+        }
+    }
+
+    // Count, sum, min and max per group number
+    private static class Accumulator {
+        private final int[] counts;
+        private final long[] sums;
+        private final long[] mins;
+        private final long[] maxes;
+
+        Accumulator(int groups) {
+            counts = new int[groups];
+            sums = new long[groups];
+            mins = new long[groups];
+            maxes = new long[groups];
+            Arrays.fill(mins, Long.MAX_VALUE);
+            Arrays.fill(maxes, Long.MIN_VALUE);
+        }
+
+        void add(int group, long cents) {
+            counts[group]++;
+            sums[group] += cents;
+            if (cents < mins[group]) {
+                mins[group] = cents;
+            }
+            if (cents > maxes[group]) {
+                maxes[group] = cents;
+            }
+        }
+
+        // Adds the other chunk's results into this one
+        Accumulator merge(Accumulator other) {
+            for (int group = 0; group < counts.length; group++) {
+                counts[group] += other.counts[group];
+                sums[group] += other.sums[group];
+                mins[group] = Math.min(mins[group], other.mins[group]);
+                maxes[group] = Math.max(maxes[group], other.maxes[group]);
+            }
+            return this;
+        }
+    }
+
+    // Splits the candidates in half until a chunk is small enough, then aggregates it. Tasks
+    // are never serialized, although RecursiveTask is Serializable.
+    @SuppressWarnings("serial")
+    private static class ChunkTask extends RecursiveTask<Accumulator> {
+        private final LedgerSnapshot snapshot;
+        private final int[] sourceRows;
+        private final boolean byRowId;  // Candidates are the row ids from to to themselves
+        private final int from;
+        private final int to;
+        private final IntPredicate filter;
+        private final Grouping grouping;
+
+        ChunkTask(LedgerSnapshot snapshot, int[] sourceRows, boolean byRowId, int from, int to, IntPredicate filter, Grouping grouping) {
+            this.snapshot = snapshot;
+            this.sourceRows = sourceRows;
+            this.byRowId = byRowId;
+            this.from = from;
+            this.to = to;
+            this.filter = filter;
+            this.grouping = grouping;
+        }
+
+        @Override
+        protected Accumulator compute() {
+            // Many groups mean larger accumulators, so use fewer, larger chunks for them
+            if (to - from <= Math.max(CHUNK_SIZE, grouping.labels.length * 4)) {
+                Accumulator accumulator = new Accumulator(grouping.labels.length);
+                for (int i = from; i < to; i++) {
+                    int row = byRowId ? i : sourceRows == null ? snapshot.rowAt(i) : sourceRows[i];
+                    if (filter.test(row)) {
+                        accumulator.add(grouping.groupOf(snapshot, row), snapshot.getAmountCents(row));
+                    }
+                }
+                return accumulator;
+            }
+            int middle = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(snapshot, sourceRows, byRowId, from, middle, filter, grouping);
+            ChunkTask right = new ChunkTask(snapshot, sourceRows, byRowId, middle, to, filter, grouping);
+            left.fork();
+            Accumulator result = right.compute();
+            return result.merge(left.join());
+        }
+    }
+}
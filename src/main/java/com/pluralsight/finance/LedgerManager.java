@@ -0,0 +1,297 @@
+package com.pluralsight.finance;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Holds many accounts in one process, each a separate ledger (shard) stored as <account>.csv in
+// a directory, with its own segment file and journal next to it. Shards are loaded on first
+// use, in parallel when several are needed at once, and the least recently used ones are
+// closed and dropped from memory whenever the loaded shards are estimated to exceed the
+// memory budget. Cross-account reports fan out to every shard in parallel and merge the results.
+//
+// A shard is pinned while a caller works with it, so it is never evicted mid-use: get at
+// ledgers through withLedger or fanOut rather than keeping references to them.
+public class LedgerManager {
+    private final Path directory;  // Folder holding one <account>.csv per account
+    private final long memoryBudgetBytes;  // Estimated heap the loaded shards may use together
+    private final TreeMap<String, Shard> shards;  // Every known account, guarded by this
+    private final ExecutorService workers;  // Loads shards and runs fan-out reports
+    private long clock;  // Use counter for least-recently-used eviction, guarded by this
+    private long loadedBytes;  // Estimated heap of the loaded shards, guarded by this
+
+    // One account. The ledger is loaded and closed under the shard's own lock; the bookkeeping
+    // fields are guarded by the manager.
+    private static class Shard {
+        private final String account;
+        private final String csvPath;
+        private Ledger ledger;  // Null while the shard is not in memory
+        private int pins;  // Callers currently using the ledger
+        private long lastUsed;  // Value of the manager's clock at the last use
+        private long estimatedBytes;  // Heap counted against the budget, 0 while not loaded
+
+        Shard(String account, String csvPath) {
+            this.account = account;
+            this.csvPath = csvPath;
+        }
+    }
+
+    // Constructor finds every account in the directory; nothing is loaded until it is used
+    public LedgerManager(String directory, long memoryBudgetBytes) {
+        this(directory, memoryBudgetBytes, Runtime.getRuntime().availableProcessors());
+    }
+
+    public LedgerManager(String directory, long memoryBudgetBytes, int threads) {
+        this.directory = Paths.get(directory);
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.shards = new TreeMap<>();
+        this.workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "ledger-manager");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, "*.csv")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String account = name.substring(0, name.length() - ".csv".length());
+                shards.put(account, new Shard(account, file.toString()));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Names of every account, in alphabetical order
+    public synchronized Set<String> getAccounts() {
+        return new TreeSet<>(shards.keySet());
+    }
+
+    // Creates an empty account file if the account does not exist yet
+    public synchronized void addAccount(String account) {
+        if (shards.containsKey(account)) {
+            return;
+        }
+        if (account.isBlank() || !account.equals(Paths.get(account).getFileName().toString())) {
+            throw new IllegalArgumentException("Invalid account name: " + account);
+        }
+        Path file = directory.resolve(account + ".csv");
+        try {
+            if (!Files.exists(file)) {
+                Files.writeString(file, Ledger.CSV_HEADER + "\n", StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        shards.put(account, new Shard(account, file.toString()));
+    }
+
+    // Runs the action on the account's ledger, loading the ledger first if it is not in memory.
+    // The ledger cannot be evicted while the action runs. Its size is measured afterwards,
+    // since an action can read older years' segments or post transactions.
+    public <T> T withLedger(String account, Function<Ledger, T> action) {
+        Shard shard = pin(account);
+        try {
+            Ledger ledger = ensureLoaded(shard);
+            try {
+                return action.apply(ledger);
+            } finally {
+                measure(shard, ledger);
+            }
+        } finally {
+            unpin(shard);
+            evictOverBudget();
+        }
+    }
+
+    // Runs the action on every account's ledger in parallel and returns the results by account
+    public <T> Map<String, T> fanOut(Function<Ledger, T> action) {
+        List<String> accounts = new ArrayList<>(getAccounts());
+        List<Callable<T>> tasks = new ArrayList<>(accounts.size());
+        for (String account : accounts) {
+            tasks.add(() -> withLedger(account, action));
+        }
+        Map<String, T> results = new TreeMap<>();
+        try {
+            List<Future<T>> futures = workers.invokeAll(tasks);
+            for (int i = 0; i < accounts.size(); i++) {
+                results.put(accounts.get(i), futures.get(i).get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        return results;
+    }
+
+    // Balance of every account at the end of the given day, in cents
+    public Map<String, Long> balancesAsOf(LocalDate date) {
+        return fanOut(ledger -> ledger.balanceAsOf(date));
+    }
+
+    // Count, deposits and payments of each account over its whole history
+    public List<LedgerTotals> accountTotals() {
+        Map<String, List<LedgerTotals>> yearly = fanOut(Ledger::yearlyTotals);
+        List<LedgerTotals> totals = new ArrayList<>(yearly.size());
+        for (Map.Entry<String, List<LedgerTotals>> entry : yearly.entrySet()) {
+            LedgerTotals sum = new LedgerTotals(entry.getKey(), 0, 0, 0);
+            for (LedgerTotals year : entry.getValue()) {
+                sum = sum.plus(year);
+            }
+            totals.add(sum);
+        }
+        return totals;
+    }
+
+    // Totals per vendor across every account. Spellings that differ only in case are combined,
+    // like the single-ledger vendor totals.
+    public List<LedgerTotals> vendorTotals() {
+        TreeMap<String, LedgerTotals> byName = new TreeMap<>();
+        for (List<LedgerTotals> accountTotals : fanOut(Ledger::vendorTotals).values()) {
+            for (LedgerTotals totals : accountTotals) {
+                byName.merge(totals.getLabel().toLowerCase(Locale.ROOT), totals, LedgerTotals::plus);
+            }
+        }
+        return new ArrayList<>(byName.values());
+    }
+
+    // The limit most recent transactions matching the query in any account, most recent first.
+    // The query is built per account, e.g. ledger -> ledger.yearToDate().vendor("Joe").
+    public List<Transaction> mostRecent(Function<Ledger, LedgerQuery> query, int limit) {
+        Map<String, List<Transaction>> perAccount = fanOut(ledger -> query.apply(ledger).stream()
+                .limit(limit).collect(Collectors.toList()));
+        List<Transaction> merged = new ArrayList<>();
+        for (List<Transaction> transactions : perAccount.values()) {
+            merged.addAll(transactions);
+        }
+        merged.sort(Comparator.comparingLong(Transaction::getEpochSecond).reversed());
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    // Accounts currently held in memory
+    public synchronized Set<String> getLoadedAccounts() {
+        Set<String> loaded = new TreeSet<>();
+        for (Shard shard : shards.values()) {
+            if (shard.estimatedBytes > 0) {
+                loaded.add(shard.account);
+            }
+        }
+        return loaded;
+    }
+
+    // Estimated heap of the loaded accounts
+    public synchronized long getLoadedBytes() {
+        return loadedBytes;
+    }
+
+    // Closes every loaded ledger and stops the worker threads
+    public void close() {
+        workers.shutdown();
+        List<Shard> all;
+        synchronized (this) {
+            all = new ArrayList<>(shards.values());
+        }
+        for (Shard shard : all) {
+            synchronized (shard) {
+                if (shard.ledger != null) {
+                    shard.ledger.close();
+                    shard.ledger = null;
+                }
+            }
+        }
+        synchronized (this) {
+            for (Shard shard : all) {
+                shard.estimatedBytes = 0;
+            }
+            loadedBytes = 0;
+        }
+    }
+
+    private synchronized Shard pin(String account) {
+        Shard shard = shards.get(account);
+        if (shard == null) {
+            throw new IllegalArgumentException("Unknown account: " + account);
+        }
+        shard.pins++;
+        shard.lastUsed = ++clock;
+        return shard;
+    }
+
+    private synchronized void unpin(Shard shard) {
+        shard.pins--;
+    }
+
+    // Returns the shard's ledger, loading it if needed. Lock order is shard, then manager.
+    private Ledger ensureLoaded(Shard shard) {
+        synchronized (shard) {
+            if (shard.ledger == null) {
+                Ledger ledger = new Ledger(shard.csvPath);
+                ledger.loadTransactionsFromCSV();
+                shard.ledger = ledger;
+            }
+            return shard.ledger;
+        }
+    }
+
+    // Counts the pinned shard's ledger against the budget at its current size: loading reads
+    // only the current year, and older years come in later as reports reach back to them
+    private void measure(Shard shard, Ledger ledger) {
+        long bytes = ledger.getEstimatedBytes();
+        synchronized (this) {
+            loadedBytes += bytes - shard.estimatedBytes;
+            shard.estimatedBytes = bytes;
+        }
+    }
+
+    // Closes least recently used shards that nobody is using until the loaded shards fit the
+    // budget again. Shards in use are skipped, so the budget can be exceeded while they run.
+    private void evictOverBudget() {
+        while (true) {
+            Shard victim = null;
+            synchronized (this) {
+                if (loadedBytes <= memoryBudgetBytes) {
+                    return;
+                }
+                for (Shard shard : shards.values()) {
+                    if (shard.estimatedBytes > 0 && shard.pins == 0 && (victim == null || shard.lastUsed < victim.lastUsed)) {
+                        victim = shard;
+                    }
+                }
+            }
+            if (victim == null) {
+                return;
+            }
+            synchronized (victim) {
+                synchronized (this) {
+                    if (victim.pins > 0 || victim.ledger == null) {
+                        continue;  // Picked up again, or already evicted by another thread
+                    }
+                    loadedBytes -= victim.estimatedBytes;
+                    victim.estimatedBytes = 0;
+                }
+                victim.ledger.close();  // Flushes the journal; reloading replays it
+                victim.ledger = null;
+            }
+        }
+    }
+}
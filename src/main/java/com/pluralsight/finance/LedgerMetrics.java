@@ -0,0 +1,150 @@
+package com.pluralsight.finance;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Hot-path instrumentation for one ledger: a latency histogram per named operation and a set
+// of running counters. Timing an operation costs two System.nanoTime calls and a few atomic
+// increments, and histograms and counters are created the first time a name is used, so
+// callers just name what they measure.
+public class LedgerMetrics implements LedgerMetricsMXBean {
+    // Operation names
+    public static final String LOAD = "load";
+    public static final String SEGMENT_LOAD = "load: segment";  // One year read on demand
+    public static final String IMPORT = "import";
+    public static final String INSERT = "insert";
+    public static final String SORT = "sort";
+    public static final String PLAN = "query plan";
+    public static final String JOURNAL_SYNC = "persist: journal sync";
+    public static final String SNAPSHOT = "persist: snapshot";
+    public static final String EXPORT = "persist: export";
+    public static final String REPORT = "report: ";  // Prefix of every report and filter
+
+    // Counter names
+    public static final String ROWS_LOADED = "rows loaded";
+    public static final String ROWS_INSERTED = "rows inserted";
+    public static final String ROWS_REJECTED = "rows rejected";  // Ledger or import file lines that could not be parsed
+    public static final String ROWS_SCANNED = "rows scanned";
+    public static final String ROWS_RETURNED = "rows returned";
+    public static final String CACHE_HITS = "report cache hits";
+    public static final String CACHE_MISSES = "report cache misses";
+    public static final String JOURNAL_REJECTED = "journal entries rejected";
+    public static final String SERVER_ERRORS = "server errors: ";  // Prefix of the failed requests' exception types
+    public static final String JOURNAL_BYTES = "bytes written: journal";
+    public static final String SNAPSHOT_BYTES = "bytes written: snapshot";
+    public static final String EXPORT_BYTES = "bytes written: export";
+
+    // Instance currently registered under each name, so closing a ledger that has been taken
+    // over does not remove its successor
+    private static final Map<ObjectName, LedgerMetrics> REGISTERED = new HashMap<>();
+
+    private final ConcurrentSkipListMap<String, LatencyHistogram> latencies;
+    private final ConcurrentSkipListMap<String, LongAdder> counters;
+    private ObjectName registeredName;  // Name under which this is registered with JMX, or null
+
+    public LedgerMetrics() {
+        this.latencies = new ConcurrentSkipListMap<>();
+        this.counters = new ConcurrentSkipListMap<>();
+    }
+
+    // Records the time since startNanos (a System.nanoTime value) for the operation
+    public void recordSince(String operation, long startNanos) {
+        record(operation, System.nanoTime() - startNanos);
+    }
+
+    public void record(String operation, long nanos) {
+        LatencyHistogram histogram = latencies.get(operation);
+        if (histogram == null) {
+            histogram = latencies.computeIfAbsent(operation, name -> new LatencyHistogram());
+        }
+        histogram.record(nanos);
+    }
+
+    // Adds to a running counter
+    public void add(String counter, long delta) {
+        LongAdder adder = counters.get(counter);
+        if (adder == null) {
+            adder = counters.computeIfAbsent(counter, name -> new LongAdder());
+        }
+        adder.add(delta);
+    }
+
+    // Current value of a counter, 0 if it was never added to
+    public long getCounter(String counter) {
+        LongAdder adder = counters.get(counter);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    @Override
+    public List<OperationStats> getOperations() {
+        List<OperationStats> operations = new ArrayList<>(latencies.size());
+        for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+            operations.add(new OperationStats(entry.getKey(), entry.getValue()));
+        }
+        return operations;
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().sum());
+        }
+        return values;
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram histogram : latencies.values()) {
+            histogram.reset();
+        }
+        for (LongAdder adder : counters.values()) {
+            adder.reset();
+        }
+    }
+
+    // Publishes the metrics over JMX under the ledger's file name. A ledger opened again on
+    // the same file takes over the name.
+    public void register(String ledgerName) {
+        synchronized (REGISTERED) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            try {
+                ObjectName name = new ObjectName("com.pluralsight.finance:type=Ledger,name=" + ObjectName.quote(ledgerName));
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+                server.registerMBean(this, name);
+                REGISTERED.put(name, this);
+                registeredName = name;
+            } catch (JMException e) {
+                e.printStackTrace();  // Metrics still work in the application, just not over JMX
+            }
+        }
+    }
+
+    // Removes the metrics from JMX if this instance still holds its name
+    public void unregister() {
+        synchronized (REGISTERED) {
+            if (registeredName == null) {
+                return;
+            }
+            if (REGISTERED.remove(registeredName, this)) {
+                try {
+                    ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+                } catch (JMException e) {
+                    // Already removed
+                }
+            }
+            registeredName = null;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.pluralsight.finance;
+
+import java.util.List;
+import java.util.Map;
+
+// Management interface of LedgerMetrics, registered with the platform MBean server as
+// com.pluralsight.finance:type=Ledger,name=<ledger file> so the numbers can be read with
+// JConsole, VisualVM or any other JMX client while the application runs
+public interface LedgerMetricsMXBean {
+    // Count and latency percentiles of every operation timed so far, by name
+    List<OperationStats> getOperations();
+
+    // Running totals: rows loaded, inserted, scanned and returned, and bytes written per file kind
+    Map<String, Long> getCounters();
+
+    // Clears every histogram and counter
+    void reset();
+}
@@ -0,0 +1,124 @@
+package com.pluralsight.finance;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.TreeSet;
+
+// The segment files of one ledger, one per calendar year: transactions.2024.ldg holds every
+// transaction of 2024. A ledger loads only the years its reports reach back to, and a
+// snapshot rewrites only the years that received postings, so the current year is the one
+// that keeps changing and past years stay as they are.
+//
+// New versions of a year are written next to it as .tmp files and renamed over it once every
+// year of the snapshot has been written (see Ledger for when that happens).
+public class LedgerPartitions {
+    private static final String SEGMENT_SUFFIX = ".ldg";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path directory;  // Folder holding the ledger's files
+    private final String baseName;  // File name of the ledger without its extension, e.g. "transactions"
+
+    // Constructor takes the ledger's path without an extension
+    public LedgerPartitions(String basePath) {
+        Path base = Paths.get(basePath).toAbsolutePath();
+        this.directory = base.getParent();
+        this.baseName = base.getFileName().toString();
+    }
+
+    // Segment file of one year
+    public Path path(int year) {
+        return directory.resolve(baseName + "." + year + SEGMENT_SUFFIX);
+    }
+
+    // Single segment file holding every year, written by earlier versions of the ledger
+    public Path legacyPath() {
+        return directory.resolve(baseName + SEGMENT_SUFFIX);
+    }
+
+    // Years that have a segment file, oldest first
+    public TreeSet<Integer> years() {
+        return scan(SEGMENT_SUFFIX);
+    }
+
+    // First second of the year
+    public static long yearStart(int year) {
+        return LedgerTime.epochSecond(year, 1, 1, 0, 0, 0);
+    }
+
+    // Years that have at least one transaction in the snapshot, oldest first
+    public static TreeSet<Integer> yearsOf(LedgerSnapshot snapshot) {
+        TreeSet<Integer> years = new TreeSet<>();
+        int position = 0;
+        while (position < snapshot.size()) {
+            int year = LedgerTime.year(snapshot.getEpochSecond(snapshot.rowAt(position)));
+            years.add(year);
+            position = snapshot.lowerBound(yearStart(year + 1));  // Skip to the first row of a later year
+        }
+        return years;
+    }
+
+    public TransactionStore.Columns read(int year) throws IOException {
+        return LedgerSegmentFile.read(path(year));
+    }
+
+    // Writes each year's transactions from the snapshot to its temp file and forces it to disk.
+    // Returns the number of bytes written. The committed segments are not touched.
+    public long writeTemps(LedgerSnapshot snapshot, Collection<Integer> years) throws IOException {
+        long bytes = 0;
+        for (int year : years) {
+            Path temp = AtomicFiles.tempPath(path(year));
+            LedgerSegmentFile.write(temp, snapshot.toColumns(yearStart(year), yearStart(year + 1)));
+            bytes += Files.size(temp);
+        }
+        return bytes;
+    }
+
+    // Renames the finished temp files over the segments of their years
+    public void commitTemps(Collection<Integer> years) throws IOException {
+        for (int year : years) {
+            AtomicFiles.commit(AtomicFiles.tempPath(path(year)), path(year));
+        }
+    }
+
+    // Deals with temp files left by a crash: they are renamed over their segments if the
+    // snapshot they belong to had reached its commit point, and deleted otherwise. A temp
+    // file that fails its checksum was never finished and is always deleted.
+    public void recover(boolean committed) throws IOException {
+        for (int year : scan(SEGMENT_SUFFIX + TEMP_SUFFIX)) {
+            Path temp = AtomicFiles.tempPath(path(year));
+            if (committed && LedgerSegmentFile.isValid(temp)) {
+                AtomicFiles.commit(temp, path(year));
+            } else {
+                Files.delete(temp);
+            }
+        }
+    }
+
+    // Years of the files named <base>.<year><suffix>
+    private TreeSet<Integer> scan(String suffix) {
+        TreeSet<Integer> years = new TreeSet<>();
+        String prefix = baseName + ".";
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, glob(prefix) + "*" + glob(suffix))) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    years.add(Integer.parseInt(name.substring(prefix.length(), name.length() - suffix.length())));
+                } catch (NumberFormatException e) {
+                    // Some other file that happens to share the prefix
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return years;
+    }
+
+    // Escapes the characters that have a meaning in glob patterns
+    private static String glob(String literal) {
+        return literal.replaceAll("([\\\\*?\\[\\]{}])", "\\\\$1");
+    }
+}
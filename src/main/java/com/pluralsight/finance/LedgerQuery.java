@@ -0,0 +1,365 @@
+package com.pluralsight.finance;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Composable, read-only query over a ledger. Each call adds a condition (date range,
+// description, vendor, amount, deposits or payments) and all conditions must hold. When the
+// query runs, the planner reads rows from whichever index yields the fewest candidates - the
+// time order, the vendor index or the description index - and checks the other conditions
+// on the primitive columns. Results come back most recent first and are produced lazily;
+// running a query never changes the ledger. A query reads the snapshot of the ledger taken
+// when it was created, so transactions posted while it runs do not show up in its results.
+// Once a query's rows have been read to the end they are kept in the ledger's report cache,
+// and the same conditions are answered from there until a posting matches them.
+public class LedgerQuery {
+    private final LedgerSnapshot snapshot;
+    private final LedgerMetrics metrics;  // Receives the run time and row counts of the query
+    private final ReportCache cache;  // Results of earlier queries over the same ledger
+    private String name;  // Report name used in the metrics, or null to derive one from the conditions
+    private long startEpochSecond = Long.MIN_VALUE;  // Inclusive lower time bound
+    private long endEpochSecond = Long.MAX_VALUE;  // Exclusive upper time bound
+    private String description;  // Text the description must contain, or null
+    private String vendor;  // Vendor name (case-insensitive), or null
+    private boolean hasAmount;  // Whether the amount must match amountCents
+    private long amountCents;
+    private int sign;  // 1 for deposits only, -1 for payments only, 0 for both
+
+    LedgerQuery(LedgerSnapshot snapshot, LedgerMetrics metrics, ReportCache cache) {
+        this.snapshot = snapshot;
+        this.metrics = metrics;
+        this.cache = cache;
+    }
+
+    // Names the report this query produces, for the metrics
+    LedgerQuery named(String name) {
+        this.name = name;
+        return this;
+    }
+
+    // Name the query's run times are recorded under: the given name, or one describing its conditions
+    public String getReportName() {
+        if (name != null) {
+            return name;
+        }
+        boolean dates = startEpochSecond != Long.MIN_VALUE || endEpochSecond != Long.MAX_VALUE;
+        boolean text = description != null && !description.isEmpty();
+        if (!dates && !text && !hasAmount && vendor == null) {
+            return sign > 0 ? "deposits" : sign < 0 ? "payments" : "all";
+        }
+        if (vendor != null && !dates && !text && !hasAmount && sign == 0) {
+            return "vendor";
+        }
+        if (dates && vendor == null && !text && !hasAmount && sign == 0) {
+            return "date range";
+        }
+        return "custom search";
+    }
+
+    // Keeps transactions between two dates, both inclusive. A null date leaves that side open.
+    public LedgerQuery between(LocalDate startDate, LocalDate endDate) {
+        return between(startDate == null ? null : startDate.atStartOfDay(),
+                endDate == null ? null : endDate.plusDays(1).atStartOfDay());
+    }
+
+    // Keeps transactions from start (inclusive) up to end (exclusive). A null bound leaves that side open.
+    public LedgerQuery between(LocalDateTime start, LocalDateTime end) {
+        if (start != null) {
+            startEpochSecond = Math.max(startEpochSecond, TransactionStore.toEpochSecond(start));
+        }
+        if (end != null) {
+            endEpochSecond = Math.min(endEpochSecond, TransactionStore.toEpochSecond(end));
+        }
+        return this;
+    }
+
+    // Keeps transactions whose description contains the text (case-insensitive)
+    public LedgerQuery descriptionContains(String text) {
+        this.description = text;
+        return this;
+    }
+
+    // Keeps transactions from the vendor (case-insensitive)
+    public LedgerQuery vendor(String vendor) {
+        this.vendor = vendor;
+        return this;
+    }
+
+    // Keeps transactions of exactly this amount, in cents
+    public LedgerQuery amountCents(long amountCents) {
+        this.hasAmount = true;
+        this.amountCents = amountCents;
+        return this;
+    }
+
+    // Keeps deposits (positive amounts)
+    public LedgerQuery deposits() {
+        this.sign = 1;
+        return this;
+    }
+
+    // Keeps payments (negative amounts)
+    public LedgerQuery payments() {
+        this.sign = -1;
+        return this;
+    }
+
+    // Matching transactions, most recent first, materialized only as the stream is consumed
+    public Stream<Transaction> stream() {
+        Spliterator.OfInt spliterator = Spliterators.spliteratorUnknownSize(rows(), Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.intStream(spliterator, false).mapToObj(snapshot::get);
+    }
+
+    // Number of matching transactions, without materializing any of them
+    public int count() {
+        long start = System.nanoTime();
+        int[] cached = cachedRows();
+        if (cached != null) {
+            metrics.recordSince(LedgerMetrics.REPORT + getReportName(), start);
+            return cached.length;
+        }
+        int count = 0;
+        PrimitiveIterator.OfInt rows = new RowIterator(plan(), metrics, cache, cacheKey(), snapshot.size());
+        while (rows.hasNext()) {
+            rows.nextInt();
+            count++;
+        }
+        metrics.recordSince(LedgerMetrics.REPORT + getReportName(), start);
+        return count;
+    }
+
+    // Writes every matching transaction to the report, most recent first, and returns how many
+    public int writeTo(ReportWriter writer) {
+        return writeTo(writer, rows(), Integer.MAX_VALUE);
+    }
+
+    // Writes up to limit more rows from an iterator returned by rows(), so a report can be
+    // produced a page at a time; returns how many were written
+    public int writeTo(ReportWriter writer, PrimitiveIterator.OfInt rows, int limit) {
+        long start = System.nanoTime();
+        int written = 0;
+        while (written < limit && rows.hasNext()) {
+            writer.writeRow(snapshot, rows.nextInt());
+            written++;
+        }
+        if (rows instanceof RowIterator) {
+            ((RowIterator) rows).publishCounts();
+        }
+        metrics.recordSince(LedgerMetrics.REPORT + getReportName(), start);
+        return written;
+    }
+
+    // Returns an iterator over the matching row ids, most recent first: the cached result of
+    // the same conditions if there is one, otherwise the rows of a newly planned scan
+    public PrimitiveIterator.OfInt rows() {
+        int[] cached = cachedRows();
+        if (cached != null) {
+            return new RowIterator(new Plan(cached, 0, cached.length, null, null), metrics, null, null, 0);
+        }
+        return new RowIterator(plan(), metrics, cache, cacheKey(), snapshot.size());
+    }
+
+    // Result of the same conditions from the report cache, ascending by time, or null
+    private int[] cachedRows() {
+        if (!cache.isEnabled()) {
+            return null;
+        }
+        int[] cached = cache.get(cacheKey(), snapshot.size());
+        metrics.add(cached != null ? LedgerMetrics.CACHE_HITS : LedgerMetrics.CACHE_MISSES, 1);
+        return cached;
+    }
+
+    private ReportCache.Key cacheKey() {
+        return new ReportCache.Key(startEpochSecond, endEpochSecond, description, vendor, hasAmount, amountCents, sign);
+    }
+
+    // Group-by report over the matching transactions, aggregated in parallel
+    public List<GroupTotals> groupBy(LedgerAggregator.GroupBy by) {
+        long start = System.nanoTime();
+        Plan plan = plan();
+        List<GroupTotals> groups = new LedgerAggregator().aggregate(snapshot, plan.sourceRows, plan.from, plan.to, plan::matches, by);
+        metrics.add(LedgerMetrics.ROWS_SCANNED, plan.to - plan.from);
+        metrics.recordSince(LedgerMetrics.REPORT + "group by " + by.name().toLowerCase(Locale.ROOT), start);
+        return groups;
+    }
+
+    // Picks the candidate source with the fewest rows for the conditions of this query
+    private Plan plan() {
+        long start = System.nanoTime();
+        Plan plan = choosePlan();
+        metrics.recordSince(LedgerMetrics.PLAN, start);
+        return plan;
+    }
+
+    private Plan choosePlan() {
+        // Candidate source 1: the slice of the time order inside the date range
+        int from = startEpochSecond == Long.MIN_VALUE ? 0 : snapshot.lowerBound(startEpochSecond);
+        int to = endEpochSecond == Long.MAX_VALUE ? snapshot.size() : snapshot.lowerBound(endEpochSecond);
+        int[] sourceRows = null;  // Rows from an index, ascending by time; null means use the time slice
+        int sourceSize = Math.max(0, to - from);
+
+        // Candidate source 2: the rows of every vendor id spelled like the vendor
+        BitSet vendorIds = null;
+        if (vendor != null) {
+            IntList matches = snapshot.findVendorIds(vendor);
+            if (matches.size() == 0) {
+                return new Plan(null, 0, 0, null, null);  // Unknown vendor, nothing can match
+            }
+            vendorIds = toBitSet(matches);
+            if (snapshot.countVendorRows(matches) < sourceSize) {
+                sourceRows = snapshot.getVendorRows(matches);
+                sourceSize = sourceRows.length;
+            }
+        }
+
+        // Candidate source 3: the rows of every description containing the text
+        BitSet descriptionIds = null;
+        if (description != null && !description.isEmpty()) {
+            IntList matches = snapshot.findDescriptionIds(description);
+            descriptionIds = toBitSet(matches);
+            if (snapshot.countDescriptionRows(matches) < sourceSize) {
+                sourceRows = snapshot.getDescriptionRows(matches);
+                sourceSize = sourceRows.length;
+            }
+        }
+
+        if (sourceRows == null) {
+            return new Plan(null, from, Math.max(from, to), vendorIds, descriptionIds);
+        }
+        return new Plan(sourceRows, 0, sourceSize, vendorIds, descriptionIds);
+    }
+
+    private static BitSet toBitSet(IntList ids) {
+        BitSet set = new BitSet();
+        for (int i = 0; i < ids.size(); i++) {
+            set.set(ids.get(i));
+        }
+        return set;
+    }
+
+    // Candidates chosen by the planner - sourceRows[from, to), or positions from to to of the
+    // time order when sourceRows is null - and the check each candidate must pass
+    private class Plan {
+        private final int[] sourceRows;
+        private final int from;
+        private final int to;
+        private final BitSet vendorIds;
+        private final BitSet descriptionIds;
+
+        Plan(int[] sourceRows, int from, int to, BitSet vendorIds, BitSet descriptionIds) {
+            this.sourceRows = sourceRows;
+            this.from = from;
+            this.to = to;
+            this.vendorIds = vendorIds;
+            this.descriptionIds = descriptionIds;
+        }
+
+        int candidate(int index) {
+            return sourceRows == null ? snapshot.rowAt(index) : sourceRows[index];
+        }
+
+        boolean matches(int row) {
+            long epochSecond = snapshot.getEpochSecond(row);
+            if (epochSecond < startEpochSecond || epochSecond >= endEpochSecond) {
+                return false;
+            }
+            long cents = snapshot.getAmountCents(row);
+            if ((sign > 0 && cents <= 0) || (sign < 0 && cents >= 0) || (hasAmount && cents != amountCents)) {
+                return false;
+            }
+            if (vendorIds != null && !vendorIds.get(snapshot.getVendorId(row))) {
+                return false;
+            }
+            return descriptionIds == null || descriptionIds.get(snapshot.getDescriptionId(row));
+        }
+    }
+
+    // Walks the planned candidates backwards (most recent first) and skips rows failing any
+    // condition. Rows scanned and returned are counted locally and added to the metrics after
+    // each page and once the candidates run out. The rows returned are collected as they go
+    // and handed to the cache if the caller reads to the end.
+    private static class RowIterator implements PrimitiveIterator.OfInt {
+        private final Plan plan;
+        private final LedgerMetrics metrics;
+        private final ReportCache cache;  // Receives the complete result, or null if it came from the cache
+        private final ReportCache.Key key;
+        private final int snapshotSize;
+        private IntList collected;  // Rows returned so far, most recent first; null once not worth caching
+        private int next;  // Index of the next candidate to examine, counting down
+        private int nextRow = -1;  // Next matching row, or -1 if not found yet
+        private int published;  // Candidates already counted in the metrics
+        private int returned;  // Rows returned and not yet counted in the metrics
+
+        RowIterator(Plan plan, LedgerMetrics metrics, ReportCache cache, ReportCache.Key key, int snapshotSize) {
+            this.plan = plan;
+            this.metrics = metrics;
+            this.cache = cache;
+            this.key = key;
+            this.snapshotSize = snapshotSize;
+            this.collected = cache == null || !cache.isEnabled() ? null : new IntList();
+            this.next = plan.to - 1;
+            this.published = plan.to - 1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (nextRow < 0 && next >= plan.from) {
+                int row = plan.candidate(next);
+                next--;
+                if (plan.matches(row)) {
+                    nextRow = row;
+                }
+            }
+            if (nextRow < 0 && published != next) {
+                publishCounts();  // Exhausted
+            }
+            if (nextRow < 0 && collected != null) {
+                cacheResult();
+            }
+            return nextRow >= 0;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int row = nextRow;
+            nextRow = -1;
+            returned++;
+            if (collected != null) {
+                collected.add(row);
+                if (collected.size() > cache.getMaxResultRows()) {
+                    collected = null;  // Too large to cache
+                }
+            }
+            return row;
+        }
+
+        // Stores the complete result ascending by time, the order index rows come in
+        private void cacheResult() {
+            int[] rows = new int[collected.size()];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = collected.get(rows.length - 1 - i);
+            }
+            cache.put(key, rows, snapshotSize);
+            collected = null;
+        }
+
+        void publishCounts() {
+            metrics.add(LedgerMetrics.ROWS_SCANNED, published - next);
+            metrics.add(LedgerMetrics.ROWS_RETURNED, returned);
+            published = next;
+            returned = 0;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.pluralsight.finance;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// Compact binary ledger file. Loading it is a checksum pass and fixed-offset reads from a
+// mapped buffer, with no text parsing. Layout (little-endian):
+//
+//   header (32 bytes): magic "LDGR", version, row count, vendor count, description count,
+//                      reserved, CRC32 of everything after the header
+//   dictionary:        vendors then descriptions, each as int byte length + UTF-8 bytes
+//   records:           one 24-byte record per row, ascending by timestamp:
+//                      long epoch seconds, long amount in cents, int vendor id, int description id
+public class LedgerSegmentFile {
+    private static final int MAGIC = 0x5247444C;  // "LDGR" read as a little-endian int
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_SIZE = 24;
+    private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+    private static final long MAX_MAPPING = (Integer.MAX_VALUE / RECORD_SIZE) * (long) RECORD_SIZE;  // Largest whole-record window
+
+    private LedgerSegmentFile() {
+    }
+
+    // Writes the rows to the file and forces it to disk
+    public static void write(Path path, TransactionStore.Columns columns) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CRC32 crc = new CRC32();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            channel.position(HEADER_SIZE);
+
+            for (String value : columns.vendors) {
+                writeString(channel, buffer, crc, value);
+            }
+            for (String value : columns.descriptions) {
+                writeString(channel, buffer, crc, value);
+            }
+            for (int i = 0; i < columns.size; i++) {
+                if (buffer.remaining() < RECORD_SIZE) {
+                    flush(channel, buffer, crc);
+                }
+                buffer.putLong(columns.epochSeconds[i]);
+                buffer.putLong(columns.amountCents[i]);
+                buffer.putInt(columns.vendorIds[i]);
+                buffer.putInt(columns.descriptionIds[i]);
+            }
+            flush(channel, buffer, crc);
+
+            // The header goes in last, once the checksum of the body is known
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(columns.size)
+                    .putInt(columns.vendors.length).putInt(columns.descriptions.length).putInt(0)
+                    .putLong(crc.getValue());
+            header.flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+    }
+
+    // Reads the rows from the file, rejecting it if the header or checksum does not match
+    public static TransactionStore.Columns read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new IOException("Ledger segment is truncated: " + path);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Not a ledger segment file: " + path);
+            }
+            int rowCount = header.getInt(8);
+            int vendorCount = header.getInt(12);
+            int descriptionCount = header.getInt(16);
+            long expectedCrc = header.getLong(24);
+            long recordBytes = (long) rowCount * RECORD_SIZE;
+            long dictionaryEnd = fileSize - recordBytes;
+            if (rowCount < 0 || dictionaryEnd < HEADER_SIZE || dictionaryEnd - HEADER_SIZE > Integer.MAX_VALUE) {
+                throw new IOException("Ledger segment is damaged: " + path);
+            }
+
+            // Verify the checksum of the body before trusting any of it
+            CRC32 crc = new CRC32();
+            ByteBuffer dictionary = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, dictionaryEnd - HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            crc.update(dictionary.duplicate());
+            for (long offset = 0; offset < recordBytes; offset += MAX_MAPPING) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, dictionaryEnd + offset, Math.min(MAX_MAPPING, recordBytes - offset)));
+            }
+            if (crc.getValue() != expectedCrc) {
+                throw new IOException("Ledger segment checksum mismatch: " + path);
+            }
+
+            TransactionStore.Columns columns = new TransactionStore.Columns(rowCount, vendorCount, descriptionCount);
+            int position = 0;
+            for (int i = 0; i < vendorCount; i++) {
+                int length = dictionary.getInt(position);
+                columns.vendors[i] = readString(dictionary, position + 4, length);
+                position += 4 + length;
+            }
+            for (int i = 0; i < descriptionCount; i++) {
+                int length = dictionary.getInt(position);
+                columns.descriptions[i] = readString(dictionary, position + 4, length);
+                position += 4 + length;
+            }
+
+            // Fixed-width records: each field is a read at a known offset
+            int row = 0;
+            for (long offset = 0; offset < recordBytes; offset += MAX_MAPPING) {
+                MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, dictionaryEnd + offset, Math.min(MAX_MAPPING, recordBytes - offset));
+                records.order(ByteOrder.LITTLE_ENDIAN);
+                for (int at = 0; at < records.limit(); at += RECORD_SIZE, row++) {
+                    columns.epochSeconds[row] = records.getLong(at);
+                    columns.amountCents[row] = records.getLong(at + 8);
+                    columns.vendorIds[row] = records.getInt(at + 16);
+                    columns.descriptionIds[row] = records.getInt(at + 20);
+                }
+            }
+            return columns;
+        }
+    }
+
+    // Checks that the file is a complete segment with a matching checksum
+    public static boolean isValid(Path path) {
+        try {
+            read(path);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static void writeString(FileChannel channel, ByteBuffer buffer, CRC32 crc, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (buffer.remaining() < 4) {
+            flush(channel, buffer, crc);
+        }
+        buffer.putInt(bytes.length);
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                flush(channel, buffer, crc);
+            }
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    private static String readString(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Writes out the buffered bytes, adding them to the running checksum
+    private static void flush(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,310 @@
+package com.pluralsight.finance;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Keeps one loaded ledger in memory and serves it over HTTP on the loopback interface, so
+// clients pay for a request instead of a JVM start and a ledger load. Endpoints (plain text):
+//
+//   GET  /report?ytd&vendor=Joe&format=csv   the report options of the command line, without --
+//   GET  /balance?date=2024-10-18            balance at the end of the day (default today)
+//   POST /transactions                       one Date|Time|Description|Vendor|Amount line per
+//                                            transaction, posted as one durable batch
+//
+// A server for a LedgerManager serves every account in its directory under the account's
+// name instead: /accounts/<account>/report, /accounts/<account>/balance and so on. Each
+// request loads the account if it is not in memory and keeps it from being evicted until the
+// response is complete. Two endpoints cover every account, queried in parallel:
+//
+//   GET  /report?ytd&limit=50                the most recent matching rows of all accounts
+//   GET  /accounts?balance=2024-10-18        each account's totals, balance (balance=DATE) or
+//                                            the totals per vendor (vendors)
+//
+// Requests run concurrently: reports read snapshots without locking and postings combine
+// under the ledger's write lock. Each request gets its own virtual thread where the JDK has
+// them; on older JDKs a cached pool of platform threads is used instead.
+//
+// A request that fails with anything but bad input is answered with 500 and the error's
+// message, and counted by exception type in the ledger's metrics (the server's own metrics,
+// published over JMX while it runs, when it serves a LedgerManager).
+public class LedgerServer {
+    private static final String ACCOUNTS = "/accounts/";  // Path prefix of the account endpoints
+
+    private final LedgerManager manager;  // The accounts served, or null when serving one ledger
+    private final LedgerMetrics metrics;  // Counts the failed requests
+    private final HttpServer server;
+    private final ExecutorService requests;  // Runs each request on its own thread
+
+    // Constructor binds to the port on localhost; port 0 picks a free one
+    public LedgerServer(Ledger ledger, int port) throws IOException {
+        this(port, null, ledger.getMetrics());
+        server.createContext("/report", exchange -> handle(exchange, "GET", e -> report(e, ledger)));
+        server.createContext("/balance", exchange -> handle(exchange, "GET", e -> balance(e, ledger)));
+        server.createContext("/transactions", exchange -> handle(exchange, "POST", e -> post(e, ledger)));
+    }
+
+    // Constructor for a server that serves every account of the manager under /accounts/
+    public LedgerServer(LedgerManager manager, int port) throws IOException {
+        this(port, manager, new LedgerMetrics());
+        server.createContext(ACCOUNTS, this::routeAccount);
+        server.createContext("/report", exchange -> handle(exchange, "GET", this::reportAll));
+        server.createContext("/accounts", exchange -> handle(exchange, "GET", this::accounts));
+    }
+
+    private LedgerServer(int port, LedgerManager manager, LedgerMetrics metrics) throws IOException {
+        this.manager = manager;
+        this.metrics = metrics;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.requests = newRequestExecutor();
+        server.setExecutor(requests);
+    }
+
+    public void start() {
+        server.start();
+        if (manager != null) {
+            metrics.register("server on port " + getPort());
+        }
+    }
+
+    // Metrics the failed requests are counted in
+    public LedgerMetrics getMetrics() {
+        return metrics;
+    }
+
+    // Port the server listens on
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Stops accepting requests, gives running ones up to a second to finish, and stops the
+    // request threads. The ledger stays open; its owner closes it.
+    public void stop() {
+        server.stop(1);
+        requests.shutdown();
+        if (manager != null) {
+            metrics.unregister();
+        }
+    }
+
+    // A thread per task: virtual threads (JDK 21) looked up by reflection so the code still
+    // builds and runs on JDK 17, where a cached pool of daemon threads takes their place
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Not available, or a preview feature that is not enabled
+        }
+        return Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "ledger-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private interface Action {
+        void run(HttpExchange exchange) throws IOException;
+    }
+
+    private interface LedgerAction {
+        void run(HttpExchange exchange, Ledger ledger) throws IOException;
+    }
+
+    // Sends /accounts/<account>/<endpoint> to the endpoint, with the account's ledger pinned
+    // in the manager for the whole request
+    private void routeAccount(HttpExchange exchange) throws IOException {
+        String[] parts = exchange.getRequestURI().getPath().substring(ACCOUNTS.length()).split("/", -1);
+        String account = parts[0];
+        String endpoint = parts.length == 2 ? parts[1] : "";
+        String method;
+        LedgerAction action;
+        switch (endpoint) {
+            case "report":
+                method = "GET";
+                action = this::report;
+                break;
+            case "balance":
+                method = "GET";
+                action = this::balance;
+                break;
+            case "transactions":
+                method = "POST";
+                action = this::post;
+                break;
+            default:
+                method = null;
+                action = null;
+        }
+        if (action == null || !manager.getAccounts().contains(account)) {
+            handle(exchange, exchange.getRequestMethod(), e -> sendText(e, 404, "Not found: " + e.getRequestURI().getPath() + "\n"));
+            return;
+        }
+        handle(exchange, method, e -> {
+            try {
+                manager.withLedger(account, l -> {
+                    try {
+                        action.run(e, l);
+                    } catch (IOException ioe) {
+                        throw new UncheckedIOException(ioe);
+                    }
+                    return null;
+                });
+            } catch (UncheckedIOException ioe) {
+                throw ioe.getCause();
+            }
+        });
+    }
+
+    // Checks the method and runs the action, answering bad input with 400 and failures with 500
+    private void handle(HttpExchange exchange, String method, Action action) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals(method)) {
+                exchange.getResponseHeaders().set("Allow", method);
+                sendText(exchange, 405, "Use " + method + "\n");
+            } else {
+                action.run(exchange);
+            }
+        } catch (IllegalArgumentException | DateTimeException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (RuntimeException e) {
+            Throwable failure = e.getCause() != null ? e.getCause() : e;
+            metrics.add(LedgerMetrics.SERVER_ERRORS + failure.getClass().getSimpleName(), 1);
+            sendError(exchange, 500, failure.getMessage() != null ? failure.getMessage() : "Internal error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Answers with the error, unless the response has already started: a second status line
+    // cannot be sent then, so the body just ends where the failure happened
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        if (exchange.getResponseCode() >= 0) {
+            return;
+        }
+        sendText(exchange, status, message + "\n");
+    }
+
+    // Streams the report. The options are checked, and the segments the report needs are read
+    // and the scan planned, before the response starts, so those failures still get a status.
+    private void report(HttpExchange exchange, Ledger ledger) throws IOException {
+        ReportRequest request = ReportRequest.parse(options(exchange, "report"));
+        LedgerQuery query = request.toQuery(ledger);
+        PrimitiveIterator.OfInt rows = query.rows();
+        exchange.getResponseHeaders().set("Content-Type", (request.isCsv() ? "text/csv" : "text/plain") + "; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);  // Chunked: the length is not known up front
+        try (OutputStream body = exchange.getResponseBody()) {
+            request.writeTo(query, rows, body);
+        }
+    }
+
+    // Runs the report on every account and sends the merged rows. Every account is queried
+    // before the response starts.
+    private void reportAll(HttpExchange exchange) throws IOException {
+        ReportRequest request = ReportRequest.parse(options(exchange, "report"));
+        List<Transaction> transactions = request.run(manager);
+        exchange.getResponseHeaders().set("Content-Type", (request.isCsv() ? "text/csv" : "text/plain") + "; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream body = exchange.getResponseBody()) {
+            request.writeTo(transactions, body);
+        }
+    }
+
+    private void accounts(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestURI().getPath().equals("/accounts")) {
+            sendText(exchange, 404, "Not found: " + exchange.getRequestURI().getPath() + "\n");
+            return;
+        }
+        AccountsRequest request = AccountsRequest.parse(options(exchange, "accounts"));
+        sendText(exchange, 200, request.run(manager));
+    }
+
+    private void balance(HttpExchange exchange, Ledger ledger) throws IOException {
+        LocalDate date = LocalDate.now();
+        for (String[] parameter : parameters(exchange)) {
+            if (!parameter[0].equals("date")) {
+                throw new IllegalArgumentException("Unknown balance option: " + parameter[0]);
+            }
+            date = LocalDate.parse(parameter[1]);
+        }
+        sendText(exchange, 200, date + "|" + Money.format(ledger.balanceAsOf(date)) + "\n");
+    }
+
+    // Posts every line of the body as one batch: all of them or, if any is invalid, none.
+    // A header line and blank lines are skipped.
+    private void post(HttpExchange exchange, Ledger ledger) throws IOException {
+        List<Transaction> transactions = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.equalsIgnoreCase(Ledger.CSV_HEADER)) {
+                    continue;
+                }
+                transactions.add(Transaction.fromCSVFormat(line.trim()));
+            }
+        }
+        if (transactions.isEmpty()) {
+            throw new IllegalArgumentException("No transactions in the request");
+        }
+        int posted = ledger.postAll(transactions);
+        sendText(exchange, 201, "Posted " + posted + " transactions\n");
+    }
+
+    // Query string parameters as command-line options: ytd&vendor=Joe becomes --ytd --vendor Joe.
+    // Options that name files are refused.
+    private static List<String> options(HttpExchange exchange, String command) {
+        List<String> options = new ArrayList<>();
+        for (String[] parameter : parameters(exchange)) {
+            if (parameter[0].equals("output") || parameter[0].equals("ledger")) {
+                throw new IllegalArgumentException("Unknown " + command + " option: " + parameter[0]);
+            }
+            options.add("--" + parameter[0]);
+            if (!parameter[1].isEmpty()) {
+                options.add(parameter[1]);
+            }
+        }
+        return options;
+    }
+
+    // Query string parameters as name and value pairs; a name without a value has ""
+    private static List<String[]> parameters(HttpExchange exchange) {
+        List<String[]> parameters = new ArrayList<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.add(new String[]{URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8)});
+        }
+        return parameters;
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(bytes);
+        }
+    }
+}
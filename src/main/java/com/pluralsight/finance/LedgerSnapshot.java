@@ -0,0 +1,219 @@
+package com.pluralsight.finance;
+
+import java.util.Arrays;
+
+// Read-only view of the ledger as it was when the snapshot was taken. The store only ever
+// appends to its column arrays and replaces (never rewrites) its time order, so a snapshot is
+// just the array references and the row count at that moment. Readers use snapshots without
+// locking and never see a half-applied posting; later postings are not visible to them.
+public class LedgerSnapshot {
+    private final int size;  // Rows visible in this snapshot
+    private final int[] order;  // Row ids ascending by timestamp; only the first size entries belong to this snapshot
+    private final long[] epochSeconds;
+    private final long[] amountCents;
+    private final int[] vendorIds;
+    private final int[] descriptionIds;
+    private final String[] vendorNames;  // Vendor dictionary values
+    private final int vendorCount;
+    private final String[] descriptionNames;  // Description dictionary values
+    private final int descriptionCount;
+    private final VendorIndex vendorIndex;  // Shared with the store and every other snapshot
+    private final DescriptionIndex descriptionIndex;  // Shared with the store and every other snapshot
+    private final long[] balances;  // Running balance along the order
+    private final long[] depositBalances;  // Running sum of deposits along the order
+    private final int[] vendorCounts;  // Totals per vendor id; ids past the end have none
+    private final long[] vendorDeposits;
+    private final long[] vendorPayments;
+
+    LedgerSnapshot(int size, int[] order, long[] epochSeconds, long[] amountCents, int[] vendorIds, int[] descriptionIds,
+                   StringDictionary vendors, StringDictionary descriptions, VendorIndex vendorIndex, DescriptionIndex descriptionIndex,
+                   long[] balances, long[] depositBalances, int[] vendorCounts, long[] vendorDeposits, long[] vendorPayments) {
+        this.size = size;
+        this.order = order;
+        this.epochSeconds = epochSeconds;
+        this.amountCents = amountCents;
+        this.vendorIds = vendorIds;
+        this.descriptionIds = descriptionIds;
+        this.vendorNames = vendors.values();
+        this.vendorCount = vendors.size();
+        this.descriptionNames = descriptions.values();
+        this.descriptionCount = descriptions.size();
+        this.vendorIndex = vendorIndex;
+        this.descriptionIndex = descriptionIndex;
+        this.balances = balances;
+        this.depositBalances = depositBalances;
+        this.vendorCounts = vendorCounts;
+        this.vendorDeposits = vendorDeposits;
+        this.vendorPayments = vendorPayments;
+    }
+
+    // Number of rows in the snapshot
+    public int size() {
+        return size;
+    }
+
+    public long getEpochSecond(int row) {
+        return epochSeconds[row];
+    }
+
+    public long getAmountCents(int row) {
+        return amountCents[row];
+    }
+
+    public int getVendorId(int row) {
+        return vendorIds[row];
+    }
+
+    public int getDescriptionId(int row) {
+        return descriptionIds[row];
+    }
+
+    // Vendor name stored under the vendor id
+    public String getVendorName(int vendorId) {
+        return vendorNames[vendorId];
+    }
+
+    // Description stored under the description id
+    public String getDescriptionName(int descriptionId) {
+        return descriptionNames[descriptionId];
+    }
+
+    public int vendorCount() {
+        return vendorCount;
+    }
+
+    public int descriptionCount() {
+        return descriptionCount;
+    }
+
+    // Materializes the row as a Transaction object
+    public Transaction get(int row) {
+        return new Transaction(epochSeconds[row], descriptionNames[descriptionIds[row]], vendorNames[vendorIds[row]], amountCents[row]);
+    }
+
+    // Descending view of the order: the row id of the index-th most recent transaction.
+    // Rows with the same timestamp list the most recently added one first.
+    public int rowByMostRecent(int index) {
+        return order[size - 1 - index];
+    }
+
+    // Row id at the given position of the ascending timestamp order
+    public int rowAt(int position) {
+        return order[position];
+    }
+
+    // First position in the order whose timestamp is at or after the given one
+    public int lowerBound(long epochSecond) {
+        return TransactionStore.lowerBound(order, size, epochSeconds, epochSecond);
+    }
+
+    // First position in the order whose timestamp is after the given one
+    public int upperBound(long epochSecond) {
+        return TransactionStore.upperBound(order, size, epochSeconds, epochSecond);
+    }
+
+    // Sum of every amount posted before the given time, i.e. the account balance at that moment
+    public long balanceBefore(long epochSecond) {
+        return runningTotal(balances, lowerBound(epochSecond));
+    }
+
+    // Totals of the transactions from start (inclusive) up to end (exclusive), from the
+    // running totals at the two ends of the period
+    public LedgerTotals totalsBetween(String label, long startEpochSecond, long endEpochSecond) {
+        int from = lowerBound(startEpochSecond);
+        int to = Math.max(from, lowerBound(endEpochSecond));
+        long net = runningTotal(balances, to) - runningTotal(balances, from);
+        long deposits = runningTotal(depositBalances, to) - runningTotal(depositBalances, from);
+        return new LedgerTotals(label, to - from, deposits, net - deposits);
+    }
+
+    // Totals of the transactions posted under the vendor id (exact spelling)
+    public LedgerTotals vendorTotals(int vendorId) {
+        if (vendorId >= vendorCounts.length) {
+            return new LedgerTotals(vendorNames[vendorId], 0, 0, 0);
+        }
+        return new LedgerTotals(vendorNames[vendorId], vendorCounts[vendorId], vendorDeposits[vendorId], vendorPayments[vendorId]);
+    }
+
+    // Running total of the first count positions of the order
+    private static long runningTotal(long[] totals, int count) {
+        return count == 0 ? 0 : totals[count - 1];
+    }
+
+    // Vendor ids whose name matches the vendor (case-insensitive); empty if the vendor is not in the ledger
+    public IntList findVendorIds(String vendor) {
+        return vendorIndex.findVendors(this, vendor);
+    }
+
+    // Total rows posted under the given vendor ids
+    public int countVendorRows(IntList vendorMatches) {
+        return vendorIndex.countRows(this, vendorMatches);
+    }
+
+    // Row ids posted under any of the given vendor ids, ascending by timestamp
+    public int[] getVendorRows(IntList vendorMatches) {
+        int[] rows = vendorIndex.getRows(this, vendorMatches);
+        TransactionStore.sortRowsByTime(epochSeconds, rows, 0, rows.length);
+        return rows;
+    }
+
+    // Ids of the descriptions that contain the text (case-insensitive)
+    public IntList findDescriptionIds(String text) {
+        return descriptionIndex.findDescriptions(this, text);
+    }
+
+    // Total rows posted under the given description ids
+    public int countDescriptionRows(IntList descriptionMatches) {
+        return descriptionIndex.countRows(this, descriptionMatches);
+    }
+
+    // Row ids posted under any of the given description ids, ascending by timestamp
+    public int[] getDescriptionRows(IntList descriptionMatches) {
+        int[] rows = descriptionIndex.getRows(this, descriptionMatches);
+        TransactionStore.sortRowsByTime(epochSeconds, rows, 0, rows.length);
+        return rows;
+    }
+
+    // Copies the rows from start (inclusive) up to end (exclusive) into a Columns batch,
+    // ascending by timestamp. Only the vendors and descriptions those rows use are copied.
+    public TransactionStore.Columns toColumns(long startEpochSecond, long endEpochSecond) {
+        int from = lowerBound(startEpochSecond);
+        int to = lowerBound(endEpochSecond);
+        int[] vendorMap = new int[vendorCount];
+        int[] descriptionMap = new int[descriptionCount];
+        Arrays.fill(vendorMap, -1);
+        Arrays.fill(descriptionMap, -1);
+        int vendorsUsed = 0;
+        int descriptionsUsed = 0;
+        for (int position = from; position < to; position++) {
+            int row = order[position];
+            if (vendorMap[vendorIds[row]] < 0) {
+                vendorMap[vendorIds[row]] = vendorsUsed++;
+            }
+            if (descriptionMap[descriptionIds[row]] < 0) {
+                descriptionMap[descriptionIds[row]] = descriptionsUsed++;
+            }
+        }
+
+        TransactionStore.Columns columns = new TransactionStore.Columns(to - from, vendorsUsed, descriptionsUsed);
+        for (int position = from; position < to; position++) {
+            int row = order[position];
+            int i = position - from;
+            columns.epochSeconds[i] = epochSeconds[row];
+            columns.amountCents[i] = amountCents[row];
+            columns.vendorIds[i] = vendorMap[vendorIds[row]];
+            columns.descriptionIds[i] = descriptionMap[descriptionIds[row]];
+        }
+        for (int id = 0; id < vendorCount; id++) {
+            if (vendorMap[id] >= 0) {
+                columns.vendors[vendorMap[id]] = vendorNames[id];
+            }
+        }
+        for (int id = 0; id < descriptionCount; id++) {
+            if (descriptionMap[id] >= 0) {
+                columns.descriptions[descriptionMap[id]] = descriptionNames[id];
+            }
+        }
+        return columns;
+    }
+}
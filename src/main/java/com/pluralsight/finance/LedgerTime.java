@@ -0,0 +1,121 @@
+package com.pluralsight.finance;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// Converts between the epoch seconds stored in the ledger, calendar fields and yyyy-MM-dd and
+// HH:mm:ss text by arithmetic, without creating LocalDateTime or DateTimeFormatter objects
+public final class LedgerTime {
+    private static final long SECONDS_PER_DAY = 86400;
+
+    private LedgerTime() {
+    }
+
+    // Parses a date and time in the ledger's yyyy-MM-dd and HH:mm:ss layout. Other ISO shapes
+    // (such as a time without seconds) fall back to LocalDateTime.parse.
+    public static long parseEpochSecond(CharSequence date, CharSequence time) {
+        if (date.length() == 10 && time.length() == 8
+                && date.charAt(4) == '-' && date.charAt(7) == '-' && time.charAt(2) == ':' && time.charAt(5) == ':') {
+            int year = digits(date, 0, 4);
+            int month = digits(date, 5, 2);
+            int day = digits(date, 8, 2);
+            int hour = digits(time, 0, 2);
+            int minute = digits(time, 3, 2);
+            int second = digits(time, 6, 2);
+            if ((year | month | day | hour | minute | second) >= 0) {
+                return epochSecond(year, month, day, hour, minute, second);
+            }
+        }
+        return LocalDateTime.parse(date + "T" + time).toEpochSecond(ZoneOffset.UTC);
+    }
+
+    // Epoch second of the calendar fields, validated the same way LocalDateTime.of does
+    public static long epochSecond(int year, int month, int day, int hour, int minute, int second) {
+        if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            throw new DateTimeException("Invalid date or time: " + year + "-" + month + "-" + day
+                    + " " + hour + ":" + minute + ":" + second);
+        }
+        // Days-from-civil: the inverse of civilDate, with years starting on March 1st
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        long days = era * 146097 + dayOfEra - 719468;
+        return days * SECONDS_PER_DAY + hour * 3600 + minute * 60 + second;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        if (month == 2) {
+            boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            return leap ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    // Reads count ASCII digits as a number, or returns -1 if any character is not a digit
+    private static int digits(CharSequence text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    // Appends the date part of the timestamp as yyyy-MM-dd
+    public static StringBuilder appendDate(StringBuilder sb, long epochSecond) {
+        long date = civilDate(epochSecond);
+        long year = Math.floorDiv(date, 512);
+        if (year >= 0 && year < 1000) {
+            sb.append(year < 10 ? "000" : year < 100 ? "00" : "0");
+        }
+        sb.append(year).append('-');
+        appendTwoDigits(sb, (int) (date >> 5 & 15)).append('-');
+        return appendTwoDigits(sb, (int) (date & 31));
+    }
+
+    // Months since year 0 (year * 12 + month - 1), so consecutive months are consecutive numbers
+    public static int yearMonth(long epochSecond) {
+        long date = civilDate(epochSecond);
+        return (int) (Math.floorDiv(date, 512) * 12 + (date >> 5 & 15) - 1);
+    }
+
+    // Calendar year of the timestamp
+    public static int year(long epochSecond) {
+        return (int) Math.floorDiv(civilDate(epochSecond), 512);
+    }
+
+    // Splits the timestamp's day count into year, month and day, packed as
+    // year * 512 + month * 32 + day
+    private static long civilDate(long epochSecond) {
+        // Civil-from-days: split the day count into 400-year eras starting on March 1st
+        long z = Math.floorDiv(epochSecond, SECONDS_PER_DAY) + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthIndex = (5 * dayOfYear + 2) / 153;  // 0 is March
+        long day = dayOfYear - (153 * monthIndex + 2) / 5 + 1;
+        long month = monthIndex < 10 ? monthIndex + 3 : monthIndex - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 512 + month * 32 + day;
+    }
+
+    // Appends the time part of the timestamp as HH:mm:ss
+    public static StringBuilder appendTime(StringBuilder sb, long epochSecond) {
+        int secondOfDay = (int) Math.floorMod(epochSecond, SECONDS_PER_DAY);
+        appendTwoDigits(sb, secondOfDay / 3600).append(':');
+        appendTwoDigits(sb, secondOfDay / 60 % 60).append(':');
+        return appendTwoDigits(sb, secondOfDay % 60);
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder sb, int value) {
+        return sb.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+}
@@ -0,0 +1,54 @@
+package com.pluralsight.finance;
+
+// Number of transactions and the sums of their deposits and payments, for a period or a vendor
+public class LedgerTotals {
+    private final String label;  // Period (e.g. 2024-10) or vendor name
+    private final int count;
+    private final long depositCents;  // Sum of the positive amounts
+    private final long paymentCents;  // Sum of the negative amounts
+
+    public LedgerTotals(String label, int count, long depositCents, long paymentCents) {
+        this.label = label;
+        this.count = count;
+        this.depositCents = depositCents;
+        this.paymentCents = paymentCents;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getDepositCents() {
+        return depositCents;
+    }
+
+    public long getPaymentCents() {
+        return paymentCents;
+    }
+
+    // Deposits minus payments
+    public long getNetCents() {
+        return depositCents + paymentCents;
+    }
+
+    // Combines two totals under this label
+    public LedgerTotals plus(LedgerTotals other) {
+        return new LedgerTotals(label, count + other.count, depositCents + other.depositCents, paymentCents + other.paymentCents);
+    }
+
+    // Column titles matching toString
+    public static String formatHeader(String labelTitle) {
+        return String.format("%-20s %8s %15s %15s %15s", labelTitle, "Count", "Deposits", "Payments", "Net");
+    }
+
+    // Override the toString method to print the totals as one row of a report
+    @Override
+    public String toString() {
+        return String.format("%-20s %8d %15s %15s %15s", label, count,
+                Money.format(depositCents), Money.format(paymentCents), Money.format(getNetCents()));
+    }
+}
@@ -6,8 +6,11 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.InputMismatchException;
 import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
 import java.util.Scanner;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 public class Menus {
     private Scanner scanner;  // Scanner to read user input from the console
@@ -31,8 +34,15 @@ public class Menus {
                 """ + ConsoleColors.RESET;
 
     // Ledger header
-    private String ledgerHeader = ConsoleColors.CYAN_UNDERLINED + String.format("%-15s %-12s %-20s %-10s %-10s",
-            "Date", "Time", "Description", "Vendor", "Amount") + ConsoleColors.RESET;
+    private String ledgerHeader = ConsoleColors.CYAN_UNDERLINED + ReportWriter.formatHeader() + ConsoleColors.RESET;
+
+    // Reports are written through one buffered writer and shown a page at a time
+    private static final int PAGE_SIZE = 50;  // Rows printed before asking whether to continue
+    private ReportWriter reportWriter = new ReportWriter(System.out);
+
+    // Export running on the ledger's background thread, reported on the home screen once it ends
+    private Future<?> pendingExport;
+    private String pendingExportPath;
 
     // Commonly printed statements for user interaction
     private String invalidInput = "Sorry, your input does not match any of the given options. Please try again!\n"; // Message for invalid input
@@ -52,11 +62,15 @@ public class Menus {
                 D) Add Deposit - save a new deposit to the ledger
                 P) Make Payment (Debit) - save payment info to the ledger
                 L) Ledger - display the ledger screen
+                I) Import - post every transaction from a CSV file
+                S) Save - export the ledger to a CSV file in the background
+                T) Stats - show operation counts, latencies and rows scanned
                 X) Exit - quit the application
                 """;
 
         boolean done = false; // Control flag to manage the input loop
         do {
+            reportFinishedExport();  // Tell the user about a background export that ended since the last visit
             System.out.println(homeScreenTitle);  // Print the home screen title
             System.out.println(prompt);  // Print the menu options
             String input = scanner.nextLine().toLowerCase().trim();  // Read user input and normalize it
@@ -64,16 +78,36 @@ public class Menus {
             // Handle user input based on the selected option
             switch (input) {
                 case "d":  // Option to add a deposit
-                    ledger.addDeposit(getDepositInfo());  // Call method to get deposit info and add it to the ledger
+                    try {
+                        ledger.addDeposit(getDepositInfo());  // Call method to get deposit info and add it to the ledger
+                        System.out.println("Ledger updated...");  // Confirmation message
+                    } catch (IllegalArgumentException e) {
+                        System.out.println("Deposit not saved: " + e.getMessage());  // Nothing reached the journal
+                    }
                     break;
                 case "p":  // Option to make a payment (currently not implemented)
-                    ledger.makePayment(getPaymentInfo());
+                    try {
+                        ledger.makePayment(getPaymentInfo());
+                        System.out.println("Ledger updated...");
+                    } catch (IllegalArgumentException e) {
+                        System.out.println("Payment not saved: " + e.getMessage());
+                    }
                     break;
                 case "l":  // Option to display the ledger
                     displayLedgerMenu();  // Call method to display the ledger menu
                     break;
+                case "i":  // Option to import transactions from a file
+                    importTransactions();
+                    break;
+                case "s":  // Option to export the ledger without waiting for the disk
+                    exportTransactions();
+                    break;
+                case "t":  // Option to show the ledger's metrics
+                    displayStats();
+                    break;
                 case "x":  // Option to exit the application
                     System.out.println("Exiting Account Ledger Application...");  // Inform user about exit
+                    ledger.close();  // Flush the journal before exiting
                     done = true;  // Set done to true to exit the loop
                     break;
                 default:  // Handle invalid input
@@ -103,15 +137,15 @@ public class Menus {
             switch (input) {
                 case "a":
                     System.out.println(ledgerHeader);
-                    ledger.displayAllLedgerEntries();
+                    displayReport(ledger.query());
                     break;
                 case "d":
                     System.out.println(ledgerHeader);
-                    ledger.displayDeposits();
+                    displayReport(ledger.query().deposits());
                     break;
                 case "p":
                     System.out.println(ledgerHeader);
-                    ledger.displayPayments();
+                    displayReport(ledger.query().payments());
                     break;
                 case "r":
                     displayReportsMenu();
@@ -136,6 +170,11 @@ public class Menus {
                 4) Previous Year
                 5) Search by Vendor - displays all entries from the specified vendor
                 6) Custom search
+                7) Balance as of a date
+                8) Monthly totals for a year
+                9) Yearly totals
+                10) Totals by vendor
+                11) Group-by report - count, sum, min and max by vendor, month, year or keyword
                 0) Back - go back to the ledger screen
                 """;
 
@@ -150,19 +189,19 @@ public class Menus {
             switch (input) {
                 case 1:
                     System.out.println(ledgerHeader);
-                    ledger.filterMonthToDate();
+                    displayReport(ledger.monthToDate());
                     break;
                 case 2:
                     System.out.println(ledgerHeader);
-                    ledger.filterByPreviousMonth();
+                    displayReport(ledger.previousMonth());
                     break;
                 case 3:
                     System.out.println(ledgerHeader);
-                    ledger.filterYearToDate();
+                    displayReport(ledger.yearToDate());
                     break;
                 case 4:
                     System.out.println(ledgerHeader);
-                    ledger.filterByPreviousYear();
+                    displayReport(ledger.previousYear());
                     break;
                 case 5:
                     searchByVendor();
@@ -170,6 +209,22 @@ public class Menus {
                 case 6:
                     customSearch();
                     break;
+                case 7:
+                    displayBalance();
+                    break;
+                case 8:
+                    System.out.println("Please enter the year: ");
+                    displayTotals("Month", ledger.monthlyTotals(getIntegerFromUserInput()));
+                    break;
+                case 9:
+                    displayTotals("Year", ledger.yearlyTotals());
+                    break;
+                case 10:
+                    displayTotals("Vendor", ledger.vendorTotals());
+                    break;
+                case 11:
+                    displayGroupByReport();
+                    break;
                 case 0:
                     System.out.println("Returning to Ledger Menu...");
                     done = true;  // Set done to true to exit the loop
@@ -182,12 +237,6 @@ public class Menus {
     }
 
     private void customSearch() {
-        // Sort the ledger transactions by the most recent date
-        ledger.sortLedgerByMostRecent();
-
-        // Retrieve the list of transactions from the ledger
-        ArrayList<Transaction> filtered = ledger.getTransactions();
-
         // Prompt the user to enter the start date for filtering
         System.out.println("Please enter the start date: ");
         String startDateString = scanner.nextLine();
@@ -220,56 +269,171 @@ public class Menus {
         System.out.println("Please enter a description of the transaction to filter by: ");
         String description = scanner.nextLine();
 
+        // Build a query from the criteria the user filled in; empty answers add no condition
+        LedgerQuery query = ledger.query(startDate).between(startDate, endDate);
+        if (!description.equals("")) {
+            query.descriptionContains(description);
+        }
+
         // Prompt the user to enter an amount for filtering
         System.out.println("Please enter the amount: ");
         String amountString = scanner.nextLine();
-        double amount = 0.0;
 
-        // If the user provided an amount, attempt to parse it into a double
+        // If the user provided an amount, attempt to parse it into exact cents
         if (!amountString.equals("")) {
             try {
-                amount = Double.parseDouble(amountString);
+                query.amountCents(Money.parseCents(amountString));
             } catch (Exception e) {
                 // If parsing fails, ignore the exception
             }
         }
 
-        // Create a thread-safe copy of the filtered transactions to avoid concurrent modification issues
-        List<Transaction> list = new CopyOnWriteArrayList<>(filtered);
-        List<Transaction> copy = new ArrayList<>(list); // Copy the list for iteration
+        // Print out the matching transactions, most recent first
+        displayReport(query);
+    }
 
-        // Iterate over the copy while modifying the original filtered list
-        for (Transaction t : copy) {
-            // Remove transactions that are before the specified start date
-            if (!startDateString.equals("") && t.getIsoLocalDateTime().isBefore(startDate.atStartOfDay())) {
-                filtered.remove(t);
-            }
-            // Remove transactions that are after the specified end date
-            if (!endDateString.equals("") && t.getIsoLocalDateTime().isAfter(endDate.atStartOfDay())) {
-                filtered.remove(t);
-            }
-            // Remove transactions that don't match the specified description (case-insensitive)
-            if (!description.equals("") && !t.getDescription().toLowerCase().contains(description.toLowerCase())) {
-                filtered.remove(t);
+    // Prompts user for a date and prints the account balance at the end of that day
+    private void displayBalance() {
+        System.out.println("Please enter the date (yyyy-MM-dd), or leave it empty for today: ");
+        String dateString = scanner.nextLine().trim();
+        LocalDate date = LocalDate.now();
+        if (!dateString.equals("")) {
+            try {
+                date = LocalDate.parse(dateString, DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+            } catch (Exception e) {
+                System.out.println("Please enter the date as yyyy-MM-dd... Ex: 2024-10-18");
+                return;
             }
-            // Remove transactions that don't match the specified amount
-            if (!amountString.equals("") && !(t.getAmount() == amount)) {
-                filtered.remove(t);
+        }
+        System.out.println("Balance as of " + date + ": " + Money.format(ledger.balanceAsOf(date)));
+    }
+
+    // Prints a table of totals with the given title for the first column
+    private void displayTotals(String labelTitle, List<LedgerTotals> totals) {
+        System.out.println(ConsoleColors.CYAN_UNDERLINED + LedgerTotals.formatHeader(labelTitle) + ConsoleColors.RESET);
+        for (LedgerTotals row : totals) {
+            System.out.println(row);
+        }
+    }
+
+    // Prompts user for what to group the whole ledger by and prints the group-by report
+    private void displayGroupByReport() {
+        System.out.println("""
+                Group the ledger by:
+                1) Vendor
+                2) Month
+                3) Year
+                4) Description keyword (first word of the description)
+                """);
+        int choice = getIntegerFromUserInput();
+        if (choice < 1 || choice > 4) {
+            System.out.println(invalidInput);
+            return;
+        }
+        LedgerAggregator.GroupBy by = LedgerAggregator.GroupBy.values()[choice - 1];
+        String labelTitle = new String[]{"Vendor", "Month", "Year", "Keyword"}[choice - 1];
+        System.out.println(ConsoleColors.CYAN_UNDERLINED + GroupTotals.formatHeader(labelTitle) + ConsoleColors.RESET);
+        for (GroupTotals group : ledger.query().groupBy(by)) {
+            System.out.println(group);
+        }
+    }
+
+    // Prompts user for a CSV file and posts all of its transactions as one batch
+    private void importTransactions() {
+        System.out.println("Please enter the path of the CSV file to import (Date|Time|Description|Vendor|Amount): ");
+        String path = scanner.nextLine().trim();
+        try {
+            List<String> rejected = new ArrayList<>();
+            int imported = ledger.importCSV(path, rejected);
+            System.out.println("Imported " + imported + " transactions...");
+            if (!rejected.isEmpty()) {
+                System.out.println("Skipped " + rejected.size() + " rows that could not be parsed:");
+                for (String line : rejected) {
+                    System.out.println("    " + line);
+                }
             }
+        } catch (RuntimeException e) {
+            // Nothing is posted when the file cannot be read or a row is invalid
+            System.out.println("Import failed: " + (e.getCause() != null ? e.getCause() : e.getMessage()));
         }
+    }
+
+    // Starts writing the ledger to a CSV file on the ledger's background thread and returns
+    // to the menu right away; the file is replaced only once the new version is complete
+    private void exportTransactions() {
+        if (pendingExport != null && !pendingExport.isDone()) {
+            System.out.println("An export to " + pendingExportPath + " is still running...");
+            return;
+        }
+        System.out.println("Please enter the path of the CSV file to write: ");
+        String path = scanner.nextLine().trim();
+        if (path.isEmpty()) {
+            System.out.println("No file given, nothing was exported...");
+            return;
+        }
+        pendingExport = ledger.exportInBackground(path);
+        pendingExportPath = path;
+        System.out.println("Exporting the ledger to " + path + " in the background...");
+    }
 
-        // Print out the remaining filtered transactions
-        for (Transaction t : filtered) {
-            System.out.println(t);
+    // Prints the latency of every operation timed so far and the running counters
+    private void displayStats() {
+        LedgerMetrics metrics = ledger.getMetrics();
+        System.out.println(ConsoleColors.CYAN_UNDERLINED + OperationStats.formatHeader() + ConsoleColors.RESET);
+        for (OperationStats operation : metrics.getOperations()) {
+            System.out.println(operation);
+        }
+        System.out.println();
+        System.out.println(ConsoleColors.CYAN_UNDERLINED + String.format("%-32s %15s", "Counter", "Total") + ConsoleColors.RESET);
+        for (Map.Entry<String, Long> counter : metrics.getCounters().entrySet()) {
+            System.out.println(String.format("%-32s %15d", counter.getKey(), counter.getValue()));
         }
+        System.out.println();
+    }
+
+    // Prints the outcome of a background export once it has ended
+    private void reportFinishedExport() {
+        if (pendingExport == null || !pendingExport.isDone()) {
+            return;
+        }
+        try {
+            pendingExport.get();
+            System.out.println("Ledger exported to " + pendingExportPath + "...");
+        } catch (ExecutionException e) {
+            System.out.println("Export to " + pendingExportPath + " failed: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pendingExport = null;
     }
 
     // Prompts user for vendor name and filters ledger
     private void searchByVendor() {
         System.out.println("Please enter the name of the vendor: ");
         String input = scanner.nextLine().toLowerCase().trim();
+        if (!ledger.hasVendor(input)) {
+            System.out.println("There are no vendors by that name in the ledger...");
+            return;
+        }
         System.out.println(ledgerHeader);
-        ledger.filterByVendor(input);
+        displayReport(ledger.query().vendor(input));
+    }
+
+    // Prints the query results a page at a time. Rows are only looked up and formatted as the
+    // pages are printed, so the first page shows up right away even for a large ledger.
+    private void displayReport(LedgerQuery query) {
+        PrimitiveIterator.OfInt rows = query.rows();
+        while (true) {
+            query.writeTo(reportWriter, rows, PAGE_SIZE);
+            reportWriter.flush();
+            if (!rows.hasNext()) {
+                return;
+            }
+            System.out.println("-- Press Enter for more, or Q to stop --");
+            if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                return;
+            }
+        }
     }
 
     // Loops to prompt user for an integer input until they enter a valid number
@@ -311,7 +475,7 @@ public class Menus {
     // Method to validate if the payment amount is a negative number
     private boolean isValidPayment(String paymentAmount) {
         try {
-            double value = Double.parseDouble(paymentAmount);  // Try to convert the input to a double
+            long value = Money.parseCents(paymentAmount);  // Try to convert the input to cents
             if (value <= 0) {  // Check if the value is negative
                 return true;  // Return true if valid
             }
@@ -344,7 +508,7 @@ public class Menus {
     // Method to validate if the deposit amount is a positive number
     private boolean isValidDeposit(String input) {
         try {
-            double value = Double.parseDouble(input);  // Try to convert the input to a double
+            long value = Money.parseCents(input);  // Try to convert the input to cents
             if (value >= 0) {  // Check if the value is positive
                 return true;  // Return true if valid
             }
@@ -0,0 +1,124 @@
+package com.pluralsight.finance;
+
+import java.nio.ByteBuffer;
+
+// Exact money amounts as a long number of cents. Parsing and formatting work directly on
+// characters or bytes, so no intermediate String or BigDecimal is created.
+public final class Money {
+    private Money() {
+    }
+
+    // Parses a decimal amount such as "-89.5", "1500" or "12.34" into cents. Digits past the
+    // second decimal place are rounded half up.
+    public static long parseCents(CharSequence text) {
+        return parseCents(text, 0, text.length());
+    }
+
+    // Parses the decimal amount in text[start, end) into cents
+    public static long parseCents(CharSequence text, int start, int end) {
+        return parse(text, null, start, end);
+    }
+
+    // Parses the ASCII decimal amount in buffer[start, end) into cents without decoding it to a String
+    public static long parseCents(ByteBuffer buffer, int start, int end) {
+        return parse(null, buffer, start, end);
+    }
+
+    // Shared parser over either characters or bytes; exactly one of text and bytes is non-null.
+    // An amount too large for a long number of cents is rejected like any other invalid one.
+    private static long parse(CharSequence text, ByteBuffer bytes, int start, int end) {
+        try {
+            return parseExact(text, bytes, start, end);
+        } catch (ArithmeticException e) {
+            throw invalid(text, bytes, start, end);
+        }
+    }
+
+    private static long parseExact(CharSequence text, ByteBuffer bytes, int start, int end) {
+        int i = start;
+        while (i < end && charAt(text, bytes, i) == ' ') {
+            i++;
+        }
+        while (end > i && charAt(text, bytes, end - 1) == ' ') {
+            end--;
+        }
+        boolean negative = false;
+        if (i < end && (charAt(text, bytes, i) == '-' || charAt(text, bytes, i) == '+')) {
+            negative = charAt(text, bytes, i) == '-';
+            i++;
+        }
+        // Accumulate as a negative number: its range reaches one further, to Long.MIN_VALUE
+        long dollars = 0;
+        int digits = 0;
+        while (i < end && charAt(text, bytes, i) != '.') {
+            int digit = charAt(text, bytes, i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalid(text, bytes, start, end);
+            }
+            dollars = Math.subtractExact(Math.multiplyExact(dollars, 10), digit);
+            digits++;
+            i++;
+        }
+        long cents = 0;
+        int fractionDigits = 0;
+        if (i < end) {
+            i++;  // Skip the decimal point
+            for (; i < end; i++) {
+                int digit = charAt(text, bytes, i) - '0';
+                if (digit < 0 || digit > 9) {
+                    throw invalid(text, bytes, start, end);
+                }
+                if (fractionDigits < 2) {
+                    cents = cents * 10 + digit;
+                } else if (fractionDigits == 2 && digit >= 5) {
+                    cents++;  // Round half up on the third decimal place
+                }
+                fractionDigits++;
+            }
+        }
+        if (digits + fractionDigits == 0) {
+            throw invalid(text, bytes, start, end);
+        }
+        for (int f = Math.min(fractionDigits, 2); f < 2; f++) {
+            cents *= 10;
+        }
+        long total = Math.subtractExact(Math.multiplyExact(dollars, 100), cents);
+        return negative ? total : Math.negateExact(total);
+    }
+
+    private static char charAt(CharSequence text, ByteBuffer bytes, int index) {
+        return text != null ? text.charAt(index) : (char) (bytes.get(index) & 0xFF);
+    }
+
+    // Appends the amount with exactly two decimal places, e.g. -89.50
+    public static StringBuilder appendTo(StringBuilder sb, long cents) {
+        if (cents < 0) {
+            sb.append('-');
+        }
+        // Divide before taking the absolute value: Math.abs(Long.MIN_VALUE) is still negative
+        long fraction = Math.abs(cents % 100);
+        sb.append(Math.abs(cents / 100)).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction);
+    }
+
+    // Formats the amount with exactly two decimal places
+    public static String format(long cents) {
+        return appendTo(new StringBuilder(24), cents).toString();
+    }
+
+    // Dollars and cents as a double, for display only
+    public static double toDouble(long cents) {
+        return cents / 100.0;
+    }
+
+    private static NumberFormatException invalid(CharSequence text, ByteBuffer bytes, int start, int end) {
+        StringBuilder sb = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            sb.append(charAt(text, bytes, i));
+        }
+        return new NumberFormatException("Invalid amount: \"" + sb + "\"");
+    }
+}
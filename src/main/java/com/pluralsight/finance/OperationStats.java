@@ -0,0 +1,61 @@
+package com.pluralsight.finance;
+
+// Summary of one timed ledger operation: how often it ran and its latency distribution in
+// microseconds. Shown by the stats menu and exposed over JMX.
+public class OperationStats {
+    private final String name;
+    private final long count;
+    private final double meanMicros;
+    private final long p50Micros;
+    private final long p90Micros;
+    private final long p99Micros;
+    private final long maxMicros;
+
+    public OperationStats(String name, LatencyHistogram histogram) {
+        this.name = name;
+        this.count = histogram.getCount();
+        this.meanMicros = histogram.getMean() / 1000;
+        this.p50Micros = histogram.getPercentile(50) / 1000;
+        this.p90Micros = histogram.getPercentile(90) / 1000;
+        this.p99Micros = histogram.getPercentile(99) / 1000;
+        this.maxMicros = histogram.getMax() / 1000;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanMicros() {
+        return meanMicros;
+    }
+
+    public long getP50Micros() {
+        return p50Micros;
+    }
+
+    public long getP90Micros() {
+        return p90Micros;
+    }
+
+    public long getP99Micros() {
+        return p99Micros;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    // Column titles matching toString
+    public static String formatHeader() {
+        return String.format("%-32s %8s %12s %10s %10s %10s %10s", "Operation", "Count", "Mean (us)", "p50", "p90", "p99", "Max");
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-32s %8d %12.1f %10d %10d %10d %10d", name, count, meanMicros, p50Micros, p90Micros, p99Micros, maxMicros);
+    }
+}
@@ -0,0 +1,61 @@
+package com.pluralsight.finance;
+
+import java.util.ArrayList;
+
+// Row ids listed under each dictionary id (vendor or description). Rows are appended in row id
+// order, so the rows visible to a snapshot are always a prefix of each list.
+public class Postings {
+    private final ArrayList<IntList> rowsById;
+
+    public Postings() {
+        this.rowsById = new ArrayList<>();
+    }
+
+    // Records the row under the given id
+    public void add(int id, int row) {
+        while (rowsById.size() <= id) {
+            rowsById.add(new IntList(1));
+        }
+        rowsById.get(id).add(row);
+    }
+
+    // Number of rows below rowLimit listed under any of the ids
+    public int count(IntList ids, int rowLimit) {
+        int count = 0;
+        for (int i = 0; i < ids.size(); i++) {
+            count += prefixLength(ids.get(i), rowLimit);
+        }
+        return count;
+    }
+
+    // Rows below rowLimit listed under any of the ids, grouped by id (not sorted)
+    public int[] collect(IntList ids, int rowLimit) {
+        int[] rows = new int[count(ids, rowLimit)];
+        int out = 0;
+        for (int i = 0; i < ids.size(); i++) {
+            int length = prefixLength(ids.get(i), rowLimit);
+            System.arraycopy(rowsById.get(ids.get(i)).elements(), 0, rows, out, length);
+            out += length;
+        }
+        return rows;
+    }
+
+    // Number of leading rows in the id's list that are below rowLimit (binary search)
+    private int prefixLength(int id, int rowLimit) {
+        if (id >= rowsById.size()) {
+            return 0;
+        }
+        IntList rows = rowsById.get(id);
+        int low = 0;
+        int high = rows.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (rows.get(middle) < rowLimit) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
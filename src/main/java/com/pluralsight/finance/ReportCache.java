@@ -0,0 +1,159 @@
+package com.pluralsight.finance;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+// Bounded cache of report results. A result is the list of row ids a query matched, ascending
+// by time, keyed by the query's conditions, so showing the same report again skips planning
+// and scanning and starts printing right away. Row ids never change once assigned, so a result
+// stays valid for every later snapshot until a posting adds a row that meets its conditions;
+// posting drops exactly those results. Entries are evicted least recently used first once the
+// cached row ids exceed the budget. A cache with a budget of 0 keeps nothing, for callers that
+// want every report to run against the store (benchmarks, for one).
+public class ReportCache {
+    private static final int DEFAULT_MAX_ROWS = 1 << 20;  // Row ids kept across all results (4 MB)
+
+    private final int maxRows;  // Budget of row ids across all results
+    private final LinkedHashMap<Key, Entry> entries;  // In access order, least recently used first
+    private long cachedRows;  // Row ids held by all entries
+    private int postedSize;  // Store size once the latest posting is published; older results may miss it
+
+    public ReportCache() {
+        this(DEFAULT_MAX_ROWS);
+    }
+
+    public ReportCache(int maxRows) {
+        this.maxRows = maxRows;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    // False for a cache with no budget, which never holds a result
+    public boolean isEnabled() {
+        return maxRows > 0;
+    }
+
+    // Largest result worth keeping, so one huge report cannot push out all the others
+    public int getMaxResultRows() {
+        return maxRows / 4;
+    }
+
+    // Cached rows for the query, or null. A result computed from a newer snapshot than the
+    // caller's may hold rows the caller cannot see, so it only counts for equal or newer snapshots.
+    public synchronized int[] get(Key key, int snapshotSize) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.snapshotSize > snapshotSize) {
+            return null;
+        }
+        return entry.rows;
+    }
+
+    // Keeps a result computed from a snapshot of the given size. A result from a snapshot that
+    // predates a posting is dropped, since the posting may have been one of its rows.
+    public synchronized void put(Key key, int[] rows, int snapshotSize) {
+        if (!isEnabled() || snapshotSize < postedSize || rows.length > getMaxResultRows()) {
+            return;
+        }
+        Entry previous = entries.put(key, new Entry(rows, snapshotSize));
+        if (previous != null) {
+            cachedRows -= previous.rows.length;
+        }
+        cachedRows += rows.length;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (cachedRows > maxRows && eldest.hasNext()) {
+            cachedRows -= eldest.next().rows.length;
+            eldest.remove();
+        }
+    }
+
+    // Drops the results the posted transactions belong in. Called before they are published to
+    // the store, with the size the store will have afterwards: a report that reads the new
+    // snapshot then never finds a result without them, and one still computing from an older
+    // snapshot cannot put its result back.
+    public synchronized void invalidate(Collection<Transaction> posted, int storeSize) {
+        postedSize = storeSize;
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> entry = it.next();
+            for (Transaction t : posted) {
+                if (entry.getKey().matches(t)) {
+                    cachedRows -= entry.getValue().rows.length;
+                    it.remove();
+                    break;
+                }
+            }
+        }
+    }
+
+    // Number of cached results
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static class Entry {
+        private final int[] rows;  // Matching row ids, ascending by time
+        private final int snapshotSize;  // Rows in the snapshot the result was computed from
+
+        Entry(int[] rows, int snapshotSize) {
+            this.rows = rows;
+            this.snapshotSize = snapshotSize;
+        }
+    }
+
+    // The conditions of a query, with names case-folded the way the indexes compare them
+    public static class Key {
+        private final long startEpochSecond;
+        private final long endEpochSecond;
+        private final String description;  // Case-folded text, or null
+        private final String vendor;  // Case-folded name, or null
+        private final boolean hasAmount;
+        private final long amountCents;
+        private final int sign;
+
+        public Key(long startEpochSecond, long endEpochSecond, String description, String vendor,
+                   boolean hasAmount, long amountCents, int sign) {
+            this.startEpochSecond = startEpochSecond;
+            this.endEpochSecond = endEpochSecond;
+            this.description = description == null || description.isEmpty() ? null : description.toLowerCase(Locale.ROOT);
+            this.vendor = vendor == null ? null : vendor.toLowerCase(Locale.ROOT);
+            this.hasAmount = hasAmount;
+            this.amountCents = hasAmount ? amountCents : 0;
+            this.sign = sign;
+        }
+
+        // Whether the transaction meets every condition, i.e. belongs in the result
+        public boolean matches(Transaction t) {
+            long epochSecond = t.getEpochSecond();
+            if (epochSecond < startEpochSecond || epochSecond >= endEpochSecond) {
+                return false;
+            }
+            long cents = t.getAmountCents();
+            if ((sign > 0 && cents <= 0) || (sign < 0 && cents >= 0) || (hasAmount && cents != amountCents)) {
+                return false;
+            }
+            if (vendor != null && !vendor.equals(t.getVendor().toLowerCase(Locale.ROOT))) {
+                return false;
+            }
+            return description == null || t.getDescription().toLowerCase(Locale.ROOT).contains(description);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return startEpochSecond == other.startEpochSecond && endEpochSecond == other.endEpochSecond
+                    && hasAmount == other.hasAmount && amountCents == other.amountCents && sign == other.sign
+                    && Objects.equals(description, other.description) && Objects.equals(vendor, other.vendor);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(startEpochSecond, endEpochSecond, description, vendor, hasAmount, amountCents, sign);
+        }
+    }
+}
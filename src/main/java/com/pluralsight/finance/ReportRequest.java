@@ -0,0 +1,164 @@
+package com.pluralsight.finance;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+// A transaction report described by command-line style options, shared by the command line and
+// the server: --ytd --vendor X --format csv and so on (see CommandLine for the full list).
+// Options are checked when parsed, so a bad request fails before the ledger is touched.
+public class ReportRequest {
+    private String period = "--all";  // One of the period options
+    private LocalDate from;  // First day, or null
+    private LocalDate to;  // Last day (inclusive), or null
+    private String vendor;
+    private String description;
+    private Long amountCents;
+    private int sign;  // 1 for deposits only, -1 for payments only, 0 for both
+    private int limit = Integer.MAX_VALUE;  // Most rows to write, the most recent ones
+    private boolean csv;  // Ledger file layout instead of the report table
+    private String output;  // File to write to, or null for the caller's stream
+
+    // Parses the options, throwing IllegalArgumentException (or DateTimeParseException) for bad ones
+    public static ReportRequest parse(List<String> options) {
+        ReportRequest request = new ReportRequest();
+        for (int i = 0; i < options.size(); i++) {
+            String option = options.get(i);
+            switch (option) {
+                case "--all":
+                case "--mtd":
+                case "--previous-month":
+                case "--ytd":
+                case "--previous-year":
+                    request.period = option;
+                    break;
+                case "--from":
+                    request.from = LocalDate.parse(value(options, ++i, option));
+                    break;
+                case "--to":
+                    request.to = LocalDate.parse(value(options, ++i, option));
+                    break;
+                case "--vendor":
+                    request.vendor = value(options, ++i, option);
+                    break;
+                case "--description":
+                    request.description = value(options, ++i, option);
+                    break;
+                case "--amount":
+                    request.amountCents = Money.parseCents(value(options, ++i, option));
+                    break;
+                case "--deposits":
+                    request.sign = 1;
+                    break;
+                case "--payments":
+                    request.sign = -1;
+                    break;
+                case "--limit":
+                    request.limit = Integer.parseInt(value(options, ++i, option));
+                    if (request.limit < 0) {
+                        throw new IllegalArgumentException("--limit cannot be negative");
+                    }
+                    break;
+                case "--format":
+                    String format = value(options, ++i, option);
+                    if (!format.equals("table") && !format.equals("csv")) {
+                        throw new IllegalArgumentException("Unknown format: " + format + " (table or csv)");
+                    }
+                    request.csv = format.equals("csv");
+                    break;
+                case "--output":
+                    request.output = value(options, ++i, option);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown report option: " + option);
+            }
+        }
+        return request;
+    }
+
+    public boolean isCsv() {
+        return csv;
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    // Builds the query over the ledger
+    public LedgerQuery toQuery(Ledger ledger) {
+        LedgerQuery query;
+        switch (period) {
+            case "--mtd":
+                query = ledger.monthToDate();
+                break;
+            case "--previous-month":
+                query = ledger.previousMonth();
+                break;
+            case "--ytd":
+                query = ledger.yearToDate();
+                break;
+            case "--previous-year":
+                query = ledger.previousYear();
+                break;
+            default:
+                query = ledger.query(from);
+        }
+        if (from != null || to != null) {
+            query.between(from, to);
+        }
+        if (vendor != null) {
+            query.vendor(vendor);
+        }
+        if (description != null) {
+            query.descriptionContains(description);
+        }
+        if (amountCents != null) {
+            query.amountCents(amountCents);
+        }
+        if (sign > 0) {
+            query.deposits();
+        } else if (sign < 0) {
+            query.payments();
+        }
+        return query;
+    }
+
+    // Runs the report on every account and returns the matching transactions of all of them,
+    // most recent first, up to the limit. The accounts are queried in parallel.
+    public List<Transaction> run(LedgerManager manager) {
+        return manager.mostRecent(this::toQuery, limit);
+    }
+
+    // Writes transactions returned by run, header first, to the stream
+    public void writeTo(List<Transaction> transactions, OutputStream stream) {
+        ReportWriter writer = new ReportWriter(stream, csv);
+        writer.writeLine(csv ? Ledger.CSV_HEADER : ReportWriter.formatHeader());
+        for (Transaction t : transactions) {
+            writer.writeTransaction(t);
+        }
+        writer.flush();
+    }
+
+    // Runs the report against the ledger and writes it, header first, to the stream
+    public void writeTo(Ledger ledger, OutputStream stream) {
+        LedgerQuery query = toQuery(ledger);
+        writeTo(query, query.rows(), stream);
+    }
+
+    // Writes the rows of a query built by toQuery, header first, to the stream. A caller that
+    // must not fail after it starts its output gets the rows (which loads and plans) first.
+    public void writeTo(LedgerQuery query, PrimitiveIterator.OfInt rows, OutputStream stream) {
+        ReportWriter writer = new ReportWriter(stream, csv);
+        writer.writeLine(csv ? Ledger.CSV_HEADER : ReportWriter.formatHeader());
+        query.writeTo(writer, rows, limit);
+        writer.flush();
+    }
+
+    private static String value(List<String> options, int index, String option) {
+        if (index >= options.size()) {
+            throw new IllegalArgumentException(option + " needs a value");
+        }
+        return options.get(index);
+    }
+}
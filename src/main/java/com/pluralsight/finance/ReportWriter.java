@@ -0,0 +1,140 @@
+package com.pluralsight.finance;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+// Renders ledger rows in the fixed column layout (Date, Time, Description, Vendor, Amount)
+// into one reused StringBuilder and writes them through a large buffer that is only flushed
+// when the caller asks, instead of formatting and flushing every row separately. A writer
+// created with csv set writes the pipe-separated ledger file layout instead.
+public class ReportWriter {
+    // Column widths of the report layout
+    private static final int DATE_WIDTH = 15;
+    private static final int TIME_WIDTH = 12;
+    private static final int DESCRIPTION_WIDTH = 20;
+    private static final int VENDOR_WIDTH = 10;
+    private static final int AMOUNT_WIDTH = 10;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final BufferedWriter out;  // Buffered sink, never flushed automatically
+    private final StringBuilder line;  // Reused for every row
+    private final boolean csv;  // Whether rows are written as Date|Time|Description|Vendor|Amount
+
+    // Constructor wraps the stream; it is flushed but never closed by this writer
+    public ReportWriter(OutputStream stream) {
+        this(stream, false);
+    }
+
+    public ReportWriter(OutputStream stream, boolean csv) {
+        this.out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.line = new StringBuilder(128);
+        this.csv = csv;
+    }
+
+    // Column titles in the report layout
+    public static String formatHeader() {
+        StringBuilder sb = new StringBuilder(80);
+        pad(sb, "Date", DATE_WIDTH).append(' ');
+        pad(sb, "Time", TIME_WIDTH).append(' ');
+        pad(sb, "Description", DESCRIPTION_WIDTH).append(' ');
+        pad(sb, "Vendor", VENDOR_WIDTH).append(' ');
+        return pad(sb, "Amount", AMOUNT_WIDTH).toString();
+    }
+
+    // Appends one transaction in the report layout
+    public static StringBuilder appendRow(StringBuilder sb, CharSequence date, CharSequence time, String description, String vendor, long amountCents) {
+        pad(sb, date, DATE_WIDTH).append(' ');
+        pad(sb, time, TIME_WIDTH).append(' ');
+        pad(sb, description, DESCRIPTION_WIDTH).append(' ');
+        pad(sb, vendor, VENDOR_WIDTH).append(' ');
+        return appendAmount(sb, amountCents);
+    }
+
+    // Appends one transaction in the report layout, formatting the timestamp in place
+    public static StringBuilder appendRow(StringBuilder sb, long epochSecond, String description, String vendor, long amountCents) {
+        int dateStart = sb.length();
+        LedgerTime.appendDate(sb, epochSecond);
+        padTo(sb, dateStart + DATE_WIDTH).append(' ');
+        int timeStart = sb.length();
+        LedgerTime.appendTime(sb, epochSecond);
+        padTo(sb, timeStart + TIME_WIDTH).append(' ');
+        pad(sb, description, DESCRIPTION_WIDTH).append(' ');
+        pad(sb, vendor, VENDOR_WIDTH).append(' ');
+        return appendAmount(sb, amountCents);
+    }
+
+    // Writes a row of the snapshot without creating a Transaction for it
+    public void writeRow(LedgerSnapshot snapshot, int row) {
+        line.setLength(0);
+        long epochSecond = snapshot.getEpochSecond(row);
+        String description = snapshot.getDescriptionName(snapshot.getDescriptionId(row));
+        String vendor = snapshot.getVendorName(snapshot.getVendorId(row));
+        if (csv) {
+            LedgerTime.appendDate(line, epochSecond).append('|');
+            LedgerTime.appendTime(line, epochSecond).append('|');
+            line.append(description).append('|').append(vendor).append('|');
+            Money.appendTo(line, snapshot.getAmountCents(row));
+        } else {
+            appendRow(line, epochSecond, description, vendor, snapshot.getAmountCents(row));
+        }
+        writeLine(line);
+    }
+
+    // Writes a transaction that is not in a snapshot, such as one merged from several accounts
+    public void writeTransaction(Transaction t) {
+        line.setLength(0);
+        if (csv) {
+            line.append(t.toCSVFormat());
+        } else {
+            appendRow(line, t.getEpochSecond(), t.getDescription(), t.getVendor(), t.getAmountCents());
+        }
+        writeLine(line);
+    }
+
+    // Writes any text followed by a newline
+    public void writeLine(CharSequence text) {
+        try {
+            out.append(text).append('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Pushes everything written so far to the underlying stream
+    public void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Left-aligns text in a column of the given width (longer text is kept whole)
+    private static StringBuilder pad(StringBuilder sb, CharSequence text, int width) {
+        int start = sb.length();
+        sb.append(text);
+        return padTo(sb, start + width);
+    }
+
+    private static StringBuilder padTo(StringBuilder sb, int length) {
+        while (sb.length() < length) {
+            sb.append(' ');
+        }
+        return sb;
+    }
+
+    // Right-aligns the amount with two decimals in the amount column
+    private static StringBuilder appendAmount(StringBuilder sb, long amountCents) {
+        int start = sb.length();
+        Money.appendTo(sb, amountCents);
+        int padding = AMOUNT_WIDTH - (sb.length() - start);
+        for (int i = 0; i < padding; i++) {
+            sb.insert(start, ' ');
+        }
+        return sb;
+    }
+}
@@ -0,0 +1,163 @@
+package com.pluralsight.finance;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+
+// Maps each distinct string to a small int id so columns can store ids instead of strings.
+// Ids are only ever appended, so an array handed out by values() stays valid for every id
+// that existed when it was taken.
+//
+// Values can also be encoded straight from UTF-8 bytes, as the CSV loader does: a value is
+// only turned into a String the first time it is seen, and every later occurrence is a hash
+// and byte comparison that returns the existing id.
+public class StringDictionary {
+    public static final int HASH_SEED = 0x811C9DC5;  // Starting value for hashStep
+
+    private final HashMap<String, Integer> ids;  // String to id lookup
+    private String[] values;  // Id to string lookup, only the first size entries are in use
+    private int size;  // Number of distinct values
+    private long charCount;  // Total length of the values, for the memory estimate
+
+    // Byte lookup for encode(ByteBuffer, ...), created on first use: an open-addressing table
+    // of id + 1 (0 for an empty slot), with the hash and the bytes of the key in each slot
+    private int[] slots;
+    private int[] slotHashes;
+    private int[] slotKeyStarts;  // Offset of the slot's key in keyBytes
+    private int[] slotKeyLengths;
+    private byte[] keyBytes;  // Bytes of every key, one after another
+    private int keyBytesUsed;
+    private int byteKeyCount;  // Number of filled slots
+
+    public StringDictionary() {
+        this.ids = new HashMap<>();
+        this.values = new String[16];
+    }
+
+    // Returns the id of the value, adding it to the dictionary if it is new
+    public int encode(String value) {
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = size;
+            ids.put(value, id);
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+            charCount += value == null ? 0 : value.length();
+        }
+        return id;
+    }
+
+    // Returns the id of the UTF-8 bytes in buffer[start, end), adding them if they are new. The
+    // caller has already hashed the bytes with hashStep, starting from HASH_SEED.
+    public int encode(ByteBuffer buffer, int start, int end, int rawHash) {
+        if (slots == null) {
+            slots = new int[128];
+            slotHashes = new int[128];
+            slotKeyStarts = new int[128];
+            slotKeyLengths = new int[128];
+            keyBytes = new byte[4096];
+        }
+        int hash = rawHash ^ (rawHash >>> 16);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                int length = end - start;
+                if (keyBytesUsed + length > keyBytes.length) {
+                    keyBytes = Arrays.copyOf(keyBytes, Math.max(keyBytes.length * 2, keyBytesUsed + length));
+                }
+                buffer.get(start, keyBytes, keyBytesUsed, length);
+                int id = encode(new String(keyBytes, keyBytesUsed, length, StandardCharsets.UTF_8));
+                slots[slot] = id + 1;
+                slotHashes[slot] = hash;
+                slotKeyStarts[slot] = keyBytesUsed;
+                slotKeyLengths[slot] = length;
+                keyBytesUsed += length;
+                if (++byteKeyCount * 2 > slots.length) {
+                    rehash();
+                }
+                return id;
+            }
+            if (slotHashes[slot] == hash && keyEquals(slot, buffer, start, end)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    // Returns the id of the value, or -1 if it is not in the dictionary
+    public int find(String value) {
+        Integer id = ids.get(value);
+        return id == null ? -1 : id;
+    }
+
+    // Returns the string stored under the given id
+    public String decode(int id) {
+        if (id >= size) {
+            throw new IndexOutOfBoundsException("No value with id " + id);
+        }
+        return values[id];
+    }
+
+    // Number of distinct values in the dictionary
+    public int size() {
+        return size;
+    }
+
+    // Approximate heap used by the dictionary: the id array, one map entry and String per value,
+    // and the characters (one byte each, as most ledger text is Latin-1)
+    public long estimatedBytes() {
+        long bytes = 16 + values.length * 4L + size * 96L + charCount;
+        return slots == null ? bytes : bytes + slots.length * 16L + keyBytes.length;
+    }
+
+    // Backing array of the values; ids below the current size are filled in
+    String[] values() {
+        return values;
+    }
+
+    // Adds one byte to a hash that started at HASH_SEED (FNV-1a)
+    public static int hashStep(int hash, byte b) {
+        return (hash ^ b) * 0x01000193;
+    }
+
+    private boolean keyEquals(int slot, ByteBuffer buffer, int start, int end) {
+        int keyStart = slotKeyStarts[slot];
+        if (slotKeyLengths[slot] != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (keyBytes[keyStart + i - start] != buffer.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Doubles the byte table and reinserts every slot using the stored hashes
+    private void rehash() {
+        int[] oldSlots = slots;
+        int[] oldHashes = slotHashes;
+        int[] oldStarts = slotKeyStarts;
+        int[] oldLengths = slotKeyLengths;
+        slots = new int[oldSlots.length * 2];
+        slotHashes = new int[slots.length];
+        slotKeyStarts = new int[slots.length];
+        slotKeyLengths = new int[slots.length];
+        int mask = slots.length - 1;
+        for (int i = 0; i < oldSlots.length; i++) {
+            if (oldSlots[i] != 0) {
+                int slot = oldHashes[i] & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = oldSlots[i];
+                slotHashes[slot] = oldHashes[i];
+                slotKeyStarts[slot] = oldStarts[i];
+                slotKeyLengths[slot] = oldLengths[i];
+            }
+        }
+    }
+}
@@ -1,55 +1,57 @@
 package com.pluralsight.finance;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.ZoneOffset;
 
 public class Transaction {
+    private static final long NO_DATE = Long.MIN_VALUE;  // Marks a transaction without a date and time
+
     // Class attributes: stores date and time, description of the transaction, vendor, and amount
-    private LocalDateTime isoLocalDateTime;  // The ISO date and time format
-    private String dateString;  // Date in string format (yyyy-MM-dd)
-    private String timeString;  // Time in string format (hh:mm:ss)
+    private long epochSecond;  // Date and time as seconds since 1970-01-01T00:00:00, or NO_DATE
     private String description;  // Description of the transaction
     private String vendor;  // Vendor associated with the transaction
-    private double amount;  // Amount for the transaction
+    private long amountCents;  // Amount for the transaction, in cents
 
     // Default constructor initializes the transaction object with empty or default values
     public Transaction() {
-        this.isoLocalDateTime = null;  // No date/time set
-        this.dateString = "";  // Empty date string
-        this.timeString = "";  // Empty time string
+        this.epochSecond = NO_DATE;  // No date/time set
         this.description = "";  // Empty description
         this.vendor = "";  // Empty vendor
-        this.amount = 0.0;  // Default amount of 0.0
+        this.amountCents = 0;  // Default amount of 0.00
     }
 
-    // Constructor that initializes a transaction object with all parameters passed as strings
-    public Transaction(String dateString, String timeString, String description, String vendor, double amount) {
-        this.dateString = dateString;  // Set the date string
-        this.timeString = timeString;  // Set the time string
-        this.description = description;  // Set the description of the transaction
-        this.vendor = vendor;  // Set the vendor
-        this.amount = amount;  // Set the transaction amount
-
-        // Create a formatter to parse the combined date and time string into an ISO format LocalDateTime object
-        DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
-        this.isoLocalDateTime = LocalDateTime.parse(dateString + "T" + timeString, formatter);  // Parse and store date-time
+    // Constructor that initializes a transaction object with the date (yyyy-MM-dd) and time
+    // (HH:mm:ss) passed as strings; they are parsed once and not kept
+    public Transaction(String dateString, String timeString, String description, String vendor, long amountCents) {
+        this(LedgerTime.parseEpochSecond(dateString, timeString), description, vendor, amountCents);
     }
 
     // Constructor that directly accepts a LocalDateTime object for date and time
-    public Transaction(LocalDateTime ldt, String description, String vendor, double amount) {
-        this.isoLocalDateTime = ldt;  // Set the date and time
+    public Transaction(LocalDateTime ldt, String description, String vendor, long amountCents) {
+        this(ldt == null ? NO_DATE : ldt.toEpochSecond(ZoneOffset.UTC), description, vendor, amountCents);
+    }
+
+    // Constructor used by loaders and the store, which already hold the timestamp as epoch seconds
+    public Transaction(long epochSecond, String description, String vendor, long amountCents) {
+        this.epochSecond = epochSecond;  // Set the date and time
         this.description = description;  // Set the transaction description
         this.vendor = vendor;  // Set the vendor
-        this.amount = amount;  // Set the amount
-
-        // Format the LocalDateTime into a string for date and time separately
-        this.dateString = isoLocalDateTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));  // Format and store the date
-        this.timeString = isoLocalDateTime.format(DateTimeFormatter.ofPattern("hh:mm:ss"));  // Format and store the time
+        this.amountCents = amountCents;  // Set the amount
     }
 
-    // Getter method to retrieve the ISO formatted LocalDateTime object
+    // Getter method to retrieve the date and time as a LocalDateTime object, or null if there is none
     public LocalDateTime getIsoLocalDateTime() {
-        return this.isoLocalDateTime;
+        return epochSecond == NO_DATE ? null : LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    // Getter method for the date and time as seconds since 1970-01-01T00:00:00
+    public long getEpochSecond() {
+        return epochSecond;
+    }
+
+    // True if the transaction has a date and time
+    public boolean hasDate() {
+        return epochSecond != NO_DATE;
     }
 
     // Getter method for transaction description
@@ -72,24 +74,57 @@ public class Transaction {
         this.vendor = vendor;
     }
 
-    // Getter method for transaction amount
+    // Getter method for transaction amount in dollars, for display
     public double getAmount() {
-        return amount;
+        return Money.toDouble(amountCents);
+    }
+
+    // Getter method for the exact transaction amount in cents
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    // Setter method for the exact transaction amount in cents
+    public void setAmountCents(long amountCents) {
+        this.amountCents = amountCents;
     }
 
-    // Setter method for transaction amount
-    public void setAmount(double amount) {
-        this.amount = amount;
+    // Creates a transaction from a single pipe-separated line (Date|Time|Description|Vendor|Amount)
+    public static Transaction fromCSVFormat(String line) {
+        int datePipe = line.indexOf('|');
+        int timePipe = line.indexOf('|', datePipe + 1);
+        int descriptionPipe = line.indexOf('|', timePipe + 1);
+        int vendorPipe = line.indexOf('|', descriptionPipe + 1);
+        if (datePipe < 0 || timePipe < 0 || descriptionPipe < 0 || vendorPipe < 0) {
+            throw new IllegalArgumentException("Malformed ledger line: " + line);
+        }
+        int amountEnd = line.indexOf('|', vendorPipe + 1);  // Anything after a fifth separator is ignored
+        return new Transaction(LedgerTime.parseEpochSecond(line.substring(0, datePipe), line.substring(datePipe + 1, timePipe)),
+                line.substring(timePipe + 1, descriptionPipe), line.substring(descriptionPipe + 1, vendorPipe),
+                Money.parseCents(line.substring(vendorPipe + 1, amountEnd < 0 ? line.length() : amountEnd)));
     }
 
-    // Method to format the transaction details in a CSV-friendly format (pipe-separated)
+    // Method to format the transaction details in a CSV-friendly format (pipe-separated); the
+    // date and time text is only produced here and in toString
     public String toCSVFormat() {
-        return dateString + "|" + timeString + "|" + description + "|" + vendor + "|" + amount;
+        StringBuilder sb = new StringBuilder(64);
+        if (hasDate()) {
+            LedgerTime.appendDate(sb, epochSecond).append('|');
+            LedgerTime.appendTime(sb, epochSecond).append('|');
+        } else {
+            sb.append("||");
+        }
+        sb.append(description).append('|').append(vendor).append('|');
+        return Money.appendTo(sb, amountCents).toString();
     }
 
     // Override the toString method to provide a readable format for printing a transaction object
     @Override
     public String toString() {
-        return String.format("%-15s %-12s %-20s %-10s %10.2f", dateString, timeString, description, vendor, amount);
+        StringBuilder sb = new StringBuilder(80);
+        if (hasDate()) {
+            return ReportWriter.appendRow(sb, epochSecond, description, vendor, amountCents).toString();
+        }
+        return ReportWriter.appendRow(sb, "", "", description, vendor, amountCents).toString();
     }
 }
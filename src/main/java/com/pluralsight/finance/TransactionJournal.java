@@ -0,0 +1,332 @@
+package com.pluralsight.finance;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Append-only write-ahead journal for new transactions. Each posting is appended as one
+// pipe-separated line (same layout as the CSV file, plus a CRC32 of the line as a sixth field)
+// instead of rewriting the whole ledger. The checksum catches lines that a crash left with
+// unwritten or stale bytes even though they end in a newline.
+// Writes are fsynced in groups: either once groupCommitSize entries are pending or after
+// groupCommitMillis, whichever comes first.
+public class TransactionJournal {
+    // Suffix of the journal that is being folded into the base file by a compaction
+    public static final String COMPACTING_SUFFIX = ".old";
+    // Suffix of the file that damaged entries are set aside in
+    public static final String REJECTED_SUFFIX = ".rejected";
+    private static final int BATCH_WRITE_SIZE = 1024 * 1024;  // Bytes of a batch gathered per write
+
+    private final Path path;  // Path of the live journal file
+    private final int groupCommitSize;  // Number of pending appends that forces an fsync
+    private final long groupCommitMillis;  // Longest time an append may wait for its fsync
+    private final LedgerMetrics metrics;  // Receives bytes written and fsync times
+    private FileChannel channel;  // Open channel to the live journal, null until open() is called
+    private ScheduledExecutorService syncTimer;  // Background thread for time-based group commits
+    private int pendingSyncs;  // Appends written but not yet fsynced
+    private int entryCount;  // Entries in the live journal since the last rotation
+    private RuntimeException syncFailure;  // Failure of a timed fsync, not yet thrown to a caller
+
+    // Constructor sets the journal location and the group commit limits
+    public TransactionJournal(String path, int groupCommitSize, long groupCommitMillis) {
+        this(path, groupCommitSize, groupCommitMillis, new LedgerMetrics());
+    }
+
+    // Constructor for a journal that reports its writes to the ledger's metrics
+    public TransactionJournal(String path, int groupCommitSize, long groupCommitMillis, LedgerMetrics metrics) {
+        this.path = Paths.get(path);
+        this.groupCommitSize = groupCommitSize;
+        this.groupCommitMillis = groupCommitMillis;
+        this.metrics = metrics;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public Path getCompactingPath() {
+        return Paths.get(path + COMPACTING_SUFFIX);
+    }
+
+    // Number of entries appended (or replayed) since the journal was last rotated
+    public synchronized int getEntryCount() {
+        return entryCount;
+    }
+
+    // Reads every complete entry from a journal file. A trailing line without a newline is a
+    // torn write from a crash and is ignored. A complete line that cannot be parsed (a bad
+    // checksum, say) is skipped and added to rejected, so the caller can set it aside.
+    public static List<Transaction> readEntries(Path journalPath, List<String> rejected) {
+        List<Transaction> entries = new ArrayList<>();
+        if (!Files.exists(journalPath)) {
+            return entries;
+        }
+        try {
+            String content = Files.readString(journalPath, StandardCharsets.UTF_8);
+            int complete = content.lastIndexOf('\n') + 1;  // Everything after the last newline is torn
+            BufferedReader br = new BufferedReader(new StringReader(content.substring(0, complete)));
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    entries.add(parseEntry(line));
+                } catch (RuntimeException e) {
+                    rejected.add(line);  // Keep going rather than losing the rest of the journal
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return entries;
+    }
+
+    // File that damaged journal lines are moved to, so a compaction never drops them for good
+    public Path getRejectedPath() {
+        return Paths.get(path + REJECTED_SUFFIX);
+    }
+
+    // Appends the lines to the rejected file, skipping any that are already in it (the same
+    // damaged line is read again on every start until a compaction retires its journal)
+    public synchronized void setAside(List<String> lines) {
+        Path rejectedPath = getRejectedPath();
+        try {
+            HashSet<String> known = new HashSet<>();
+            if (Files.exists(rejectedPath)) {
+                known.addAll(Files.readAllLines(rejectedPath, StandardCharsets.UTF_8));
+            }
+            StringBuilder sb = new StringBuilder();
+            for (String line : lines) {
+                if (known.add(line)) {
+                    sb.append(line).append('\n');
+                }
+            }
+            if (sb.length() > 0) {
+                try (FileChannel rejected = FileChannel.open(rejectedPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+                    while (buffer.hasRemaining()) {
+                        rejected.write(buffer);
+                    }
+                    rejected.force(false);  // On disk before a compaction can retire the journal
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Opens the live journal for appending, cutting off any torn tail left by a crash
+    public synchronized void open() {
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            truncateTornTail();
+            channel.position(channel.size());
+            entryCount = readEntries(path, new ArrayList<>()).size();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        if (syncTimer == null) {
+            syncTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "journal-group-commit");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncTimer.scheduleWithFixedDelay(this::syncOnTimer, groupCommitMillis, groupCommitMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Appends a batch of transactions with one write per megabyte instead of one per entry.
+    // The entries count towards the group commit, so the batch is fsynced here once
+    // groupCommitSize entries are pending; call sync() to make it durable right away. A failed
+    // background fsync is thrown from here, before anything is written.
+    public synchronized void appendAll(Collection<Transaction> transactions) {
+        throwSyncFailure();
+        StringBuilder sb = new StringBuilder();
+        try {
+            for (Transaction t : transactions) {
+                appendEntry(sb, t);
+                if (sb.length() >= BATCH_WRITE_SIZE) {
+                    write(sb);
+                }
+            }
+            write(sb);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        entryCount += transactions.size();
+        pendingSyncs += transactions.size();
+        if (pendingSyncs >= groupCommitSize) {
+            sync();
+        }
+    }
+
+    // Appends the transaction's journal line: its CSV layout, its checksum and a newline
+    private static StringBuilder appendEntry(StringBuilder sb, Transaction t) {
+        String csv = t.toCSVFormat();
+        return sb.append(csv).append('|').append(Long.toHexString(checksum(csv))).append('\n');
+    }
+
+    // Parses a journal line, rejecting it if its checksum does not match. Lines written before
+    // journals had checksums (five fields) are accepted as they are.
+    static Transaction parseEntry(String line) {
+        int fields = 1;
+        for (int i = line.indexOf('|'); i >= 0; i = line.indexOf('|', i + 1)) {
+            fields++;
+        }
+        if (fields > 5) {
+            int checksumStart = line.lastIndexOf('|');
+            String csv = line.substring(0, checksumStart);
+            if (!Long.toHexString(checksum(csv)).equals(line.substring(checksumStart + 1))) {
+                throw new IllegalArgumentException("Journal entry checksum mismatch: " + line);
+            }
+            return Transaction.fromCSVFormat(csv);
+        }
+        return Transaction.fromCSVFormat(line);
+    }
+
+    private static long checksum(String csv) {
+        CRC32 crc = new CRC32();
+        crc.update(csv.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    private void write(StringBuilder sb) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        metrics.add(LedgerMetrics.JOURNAL_BYTES, buffer.remaining());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        sb.setLength(0);
+    }
+
+    // Forces all pending appends to disk
+    public synchronized void sync() {
+        if (pendingSyncs == 0 || channel == null) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            channel.force(false);
+            metrics.recordSince(LedgerMetrics.JOURNAL_SYNC, start);
+            pendingSyncs = 0;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Group commit run by the timer. An exception would cancel the schedule without a trace,
+    // so a failure is kept and thrown from the next append or close instead; the pending
+    // appends stay pending and the next run tries again.
+    private synchronized void syncOnTimer() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            if (syncFailure == null) {
+                syncFailure = e;
+            }
+        }
+    }
+
+    // Throws the failure of an earlier background fsync, once
+    private void throwSyncFailure() {
+        RuntimeException failure = syncFailure;
+        if (failure != null) {
+            syncFailure = null;
+            throw failure;
+        }
+    }
+
+    // Moves the live journal aside so it can be compacted and starts a fresh one.
+    // Returns false if a previous compaction has not finished yet. If the rotation fails part
+    // way, the live journal is opened again before the failure is thrown, so later appends
+    // still have a file to go to.
+    public synchronized boolean rotate() {
+        Path compacting = getCompactingPath();
+        if (Files.exists(compacting)) {
+            return false;
+        }
+        try {
+            sync();
+            channel.close();
+            try {
+                Files.move(path, compacting, StandardCopyOption.ATOMIC_MOVE);
+                channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                reopenAfterFailedRotation(e);
+                throw e;
+            }
+            AtomicFiles.syncDirectory(path);  // The rotation must be on disk before the compaction can retire it
+            entryCount = 0;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return true;
+    }
+
+    // Opens the live journal for appending again: the old file if the move failed, or a new
+    // one if only the fresh journal could not be created. In the second case the moved file
+    // stays behind as the compacting journal and is replayed on the next start.
+    private void reopenAfterFailedRotation(IOException failure) {
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+        } catch (IOException e) {
+            failure.addSuppressed(e);  // Appends keep failing on the closed channel until a restart
+        }
+    }
+
+    // Flushes pending appends and releases the journal file. A background fsync that failed
+    // since the last append is thrown once the file is released.
+    public synchronized void close() {
+        if (syncTimer != null) {
+            syncTimer.shutdown();
+            syncTimer = null;
+        }
+        if (channel != null) {
+            try {
+                sync();
+                channel.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            } finally {
+                channel = null;
+            }
+        }
+        throwSyncFailure();
+    }
+
+    // Drops any bytes after the last newline so new appends never continue a half-written line
+    private void truncateTornTail() throws IOException {
+        long size = channel.size();
+        long position = size;
+        ByteBuffer one = ByteBuffer.allocate(1);
+        while (position > 0) {
+            one.clear();
+            channel.read(one, position - 1);
+            if (one.get(0) == '\n') {
+                break;
+            }
+            position--;
+        }
+        if (position < size) {
+            channel.truncate(position);
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package com.pluralsight.finance;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+// Column-oriented storage for the ledger. Each transaction is a row id into primitive arrays:
+// epoch seconds, amount in cents and dictionary ids for the vendor and description.
+// Transaction objects are only created when a row is read. A separate permutation keeps the
+// row ids ordered by timestamp, so the ledger is always sorted without moving rows.
+//
+// The store has a single writer at a time (Ledger serializes postings) and any number of
+// readers. Readers work on a LedgerSnapshot published after every change: rows are only
+// appended past the published size, and a change that would move published entries of the
+// order builds a new order array instead, so a published snapshot never changes under a reader.
+public class TransactionStore {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Columns, indexed by row id (rows are numbered in the order they were added)
+    private long[] epochSeconds;  // Date and time of the transaction, as seconds since 1970-01-01T00:00 local time
+    private long[] amountCents;  // Amount in cents, negative for payments
+    private int[] vendorIds;  // Id of the vendor in the vendor dictionary
+    private int[] descriptionIds;  // Id of the description in the description dictionary
+    private int size;  // Number of rows in use
+    private int[] order;  // Row ids ascending by timestamp, ties in the order they were added
+
+    // Running totals along the order: entry i is the sum of the amounts at positions 0..i, so
+    // the balance at any time and the totals of any period take two binary searches
+    private long[] balances;  // Running balance (all amounts)
+    private long[] depositBalances;  // Running sum of the deposits only
+
+    // Totals per vendor id, updated as rows are added. They are copied before the first change
+    // after a publish, so published snapshots keep their own values.
+    private int[] vendorCounts;
+    private long[] vendorDeposits;
+    private long[] vendorPayments;
+    private boolean vendorTotalsShared;  // True once the arrays are part of a published snapshot
+
+    private final StringDictionary vendors;  // Distinct vendor names
+    private final StringDictionary descriptions;  // Distinct descriptions
+
+    // Secondary indexes, built by the first query that uses them. Postings extend the vendor
+    // index; everything else is caught up by the next query.
+    private final VendorIndex vendorIndex;
+    private final DescriptionIndex descriptionIndex;
+
+    private volatile LedgerSnapshot snapshot;  // Latest published view for readers
+    private final LedgerMetrics metrics;  // Times the ordering work of every add
+
+    public TransactionStore() {
+        this(new LedgerMetrics());
+    }
+
+    // Constructor for a store that reports its ordering work to the ledger's metrics
+    public TransactionStore(LedgerMetrics metrics) {
+        this.metrics = metrics;
+        this.epochSeconds = new long[INITIAL_CAPACITY];
+        this.amountCents = new long[INITIAL_CAPACITY];
+        this.vendorIds = new int[INITIAL_CAPACITY];
+        this.descriptionIds = new int[INITIAL_CAPACITY];
+        this.order = new int[INITIAL_CAPACITY];
+        this.balances = new long[INITIAL_CAPACITY];
+        this.depositBalances = new long[INITIAL_CAPACITY];
+        this.vendorCounts = new int[16];
+        this.vendorDeposits = new long[16];
+        this.vendorPayments = new long[16];
+        this.vendors = new StringDictionary();
+        this.descriptions = new StringDictionary();
+        this.vendorIndex = new VendorIndex();
+        this.descriptionIndex = new DescriptionIndex();
+        publish();
+    }
+
+    // Latest published view of the store; safe to use from any thread
+    public LedgerSnapshot snapshot() {
+        return snapshot;
+    }
+
+    // Adds a transaction and returns its row id. New postings are usually the most recent, so
+    // the row normally goes at the end of the order without touching published entries.
+    public int add(Transaction t) {
+        ensureCapacity(size + 1);
+        int row = size;
+        writeColumns(row, t);
+        long start = System.nanoTime();
+        int position = upperBound(order, size, epochSeconds, epochSeconds[row]);
+        if (position < size) {
+            // Copy on write: readers may still be walking the current order
+            int[] newOrder = new int[order.length];
+            System.arraycopy(order, 0, newOrder, 0, position);
+            System.arraycopy(order, position, newOrder, position + 1, size - position);
+            order = newOrder;
+            balances = copyPrefix(balances, position);
+            depositBalances = copyPrefix(depositBalances, position);
+        }
+        order[position] = row;
+        size++;
+        updateBalances(position);
+        metrics.recordSince(LedgerMetrics.SORT, start);
+        publish();
+        vendorIndex.update(snapshot);
+        return row;
+    }
+
+    // Adds every transaction in the collection. The new rows are sorted as one run and merged
+    // into the existing order in a single pass.
+    public void addAll(Collection<Transaction> transactions) {
+        int count = transactions.size();
+        if (count == 0) {
+            return;
+        }
+        ensureCapacity(size + count);
+        int[] run = new int[count];
+        int i = 0;
+        for (Transaction t : transactions) {
+            run[i] = size + i;
+            writeColumns(run[i], t);
+            i++;
+        }
+        sortRun(run);
+        publish();
+        vendorIndex.update(snapshot);
+    }
+
+    // Adds a batch of rows given as columns, merging them into the order like addAll
+    public void addColumns(Columns columns) {
+        if (columns.size == 0) {
+            return;
+        }
+        ensureCapacity(size + columns.size);
+
+        // Translate the batch's dictionary ids into this store's ids once per distinct value
+        int[] vendorMap = new int[columns.vendors.length];
+        for (int i = 0; i < vendorMap.length; i++) {
+            vendorMap[i] = vendors.encode(columns.vendors[i]);
+        }
+        int[] descriptionMap = new int[columns.descriptions.length];
+        for (int i = 0; i < descriptionMap.length; i++) {
+            descriptionMap[i] = descriptions.encode(columns.descriptions[i]);
+        }
+
+        int[] run = new int[columns.size];
+        for (int i = 0; i < columns.size; i++) {
+            run[i] = size + i;
+            writeRow(run[i], columns.epochSeconds[i], columns.amountCents[i],
+                    vendorMap[columns.vendorIds[i]], descriptionMap[columns.descriptionIds[i]]);
+        }
+        sortRun(run);
+        publish();
+    }
+
+    // Sorts a run of new rows by time and merges it into the order, timed as the store's sort
+    private void sortRun(int[] run) {
+        long start = System.nanoTime();
+        sortRowsByTime(epochSeconds, run, 0, run.length);
+        mergeRun(run);
+        metrics.recordSince(LedgerMetrics.SORT, start);
+    }
+
+    // Writes the column values for a new row id without placing it in the order yet
+    private void writeColumns(int row, Transaction t) {
+        writeRow(row, t.getEpochSecond(), t.getAmountCents(),
+                vendors.encode(t.getVendor()), descriptions.encode(t.getDescription()));
+    }
+
+    private void writeRow(int row, long epochSecond, long cents, int vendorId, int descriptionId) {
+        epochSeconds[row] = epochSecond;
+        amountCents[row] = cents;
+        vendorIds[row] = vendorId;
+        descriptionIds[row] = descriptionId;
+        addToVendorTotals(vendorId, cents);
+    }
+
+    private void addToVendorTotals(int vendorId, long cents) {
+        if (vendorTotalsShared || vendorId >= vendorCounts.length) {
+            int length = Math.max(vendorCounts.length, vendorId + 1 + (vendorId >> 1));
+            vendorCounts = Arrays.copyOf(vendorCounts, length);
+            vendorDeposits = Arrays.copyOf(vendorDeposits, length);
+            vendorPayments = Arrays.copyOf(vendorPayments, length);
+            vendorTotalsShared = false;
+        }
+        vendorCounts[vendorId]++;
+        if (cents > 0) {
+            vendorDeposits[vendorId] += cents;
+        } else {
+            vendorPayments[vendorId] += cents;
+        }
+    }
+
+    // Recomputes the running totals from the given position to the end of the order
+    private void updateBalances(int from) {
+        long balance = from == 0 ? 0 : balances[from - 1];
+        long deposits = from == 0 ? 0 : depositBalances[from - 1];
+        for (int position = from; position < size; position++) {
+            long cents = amountCents[order[position]];
+            balance += cents;
+            if (cents > 0) {
+                deposits += cents;
+            }
+            balances[position] = balance;
+            depositBalances[position] = deposits;
+        }
+    }
+
+    // New array of the same length holding the first length entries of values
+    private static long[] copyPrefix(long[] values, int length) {
+        long[] copy = new long[values.length];
+        System.arraycopy(values, 0, copy, 0, length);
+        return copy;
+    }
+
+    // Makes everything written so far visible to readers
+    private void publish() {
+        snapshot = new LedgerSnapshot(size, order, epochSeconds, amountCents, vendorIds, descriptionIds,
+                vendors, descriptions, vendorIndex, descriptionIndex,
+                balances, depositBalances, vendorCounts, vendorDeposits, vendorPayments);
+        vendorTotalsShared = true;
+    }
+
+    // Merges a sorted run of new row ids into the order. A run that is entirely newer than the
+    // ledger is appended past the published entries; otherwise the merge goes into a new array.
+    private void mergeRun(int[] run) {
+        if (size == 0 || compareRows(epochSeconds, order[size - 1], run[0]) < 0) {
+            System.arraycopy(run, 0, order, size, run.length);
+            int from = size;
+            size += run.length;
+            updateBalances(from);
+            return;
+        }
+        int[] merged = new int[order.length];
+        int existing = 0;
+        int incoming = 0;
+        int out = 0;
+        int firstChanged = -1;  // First position that now holds a new row
+        while (incoming < run.length) {
+            if (existing < size && compareRows(epochSeconds, order[existing], run[incoming]) < 0) {
+                merged[out++] = order[existing++];
+            } else {
+                if (firstChanged < 0) {
+                    firstChanged = out;
+                }
+                merged[out++] = run[incoming++];
+            }
+        }
+        System.arraycopy(order, existing, merged, out, size - existing);
+        order = merged;
+        balances = copyPrefix(balances, firstChanged);
+        depositBalances = copyPrefix(depositBalances, firstChanged);
+        size += run.length;
+        updateBalances(firstChanged);
+    }
+
+    // Number of rows in the store
+    public int size() {
+        return size;
+    }
+
+    // First position in order[0, size) whose timestamp is at or after the given one
+    static int lowerBound(int[] order, int size, long[] epochSeconds, long epochSecond) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (epochSeconds[order[middle]] < epochSecond) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // First position in order[0, size) whose timestamp is after the given one
+    static int upperBound(int[] order, int size, long[] epochSeconds, long epochSecond) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (epochSeconds[order[middle]] <= epochSecond) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Sorts row ids ascending by timestamp, then by row id (merge sort, no boxing)
+    static void sortRowsByTime(long[] epochSeconds, int[] rows, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int[] buffer = new int[to - from];
+        mergeSort(epochSeconds, rows, buffer, from, to);
+    }
+
+    private static void mergeSort(long[] epochSeconds, int[] rows, int[] buffer, int from, int to) {
+        if (to - from <= 16) {
+            // Insertion sort for short runs
+            for (int i = from + 1; i < to; i++) {
+                int row = rows[i];
+                int j = i - 1;
+                while (j >= from && compareRows(epochSeconds, rows[j], row) > 0) {
+                    rows[j + 1] = rows[j];
+                    j--;
+                }
+                rows[j + 1] = row;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(epochSeconds, rows, buffer, from, middle);
+        mergeSort(epochSeconds, rows, buffer, middle, to);
+        if (compareRows(epochSeconds, rows[middle - 1], rows[middle]) <= 0) {
+            return;  // Halves are already in order
+        }
+        int left = from;
+        int right = middle;
+        int out = 0;
+        while (left < middle && right < to) {
+            buffer[out++] = compareRows(epochSeconds, rows[left], rows[right]) <= 0 ? rows[left++] : rows[right++];
+        }
+        while (left < middle) {
+            buffer[out++] = rows[left++];
+        }
+        while (right < to) {
+            buffer[out++] = rows[right++];
+        }
+        System.arraycopy(buffer, 0, rows, from, out);
+    }
+
+    // Orders rows by timestamp, breaking ties by the order they were added
+    private static int compareRows(long[] epochSeconds, int a, int b) {
+        int byTime = Long.compare(epochSeconds[a], epochSeconds[b]);
+        return byTime != 0 ? byTime : Integer.compare(a, b);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= epochSeconds.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, epochSeconds.length + (epochSeconds.length >> 1));
+        epochSeconds = Arrays.copyOf(epochSeconds, newCapacity);
+        amountCents = Arrays.copyOf(amountCents, newCapacity);
+        vendorIds = Arrays.copyOf(vendorIds, newCapacity);
+        descriptionIds = Arrays.copyOf(descriptionIds, newCapacity);
+        order = Arrays.copyOf(order, newCapacity);
+        balances = Arrays.copyOf(balances, newCapacity);
+        depositBalances = Arrays.copyOf(depositBalances, newCapacity);
+    }
+
+    // Approximate heap used by the columns, the order, the running totals and the dictionaries.
+    // The lazily built vendor and description indexes are not included.
+    public long estimatedBytes() {
+        long perRow = 8 + 8 + 4 + 4 + 4 + 8 + 8;  // Timestamp, amount, vendor, description, order, two running totals
+        long perVendor = 4 + 8 + 8;
+        return epochSeconds.length * perRow + vendorCounts.length * perVendor
+                + vendors.estimatedBytes() + descriptions.estimatedBytes();
+    }
+
+    // Converts a local date and time into the epoch seconds stored in the timestamp column
+    public static long toEpochSecond(LocalDateTime ldt) {
+        return ldt.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    // A batch of rows in column form with its own vendor and description dictionaries, used to
+    // move rows between the store and files without creating Transaction objects
+    public static class Columns {
+        final int size;
+        final long[] epochSeconds;
+        final long[] amountCents;
+        final int[] vendorIds;  // Index into vendors
+        final int[] descriptionIds;  // Index into descriptions
+        final String[] vendors;  // A value may appear under several ids; the store folds them into one
+        final String[] descriptions;
+
+        public Columns(int size, int vendorCount, int descriptionCount) {
+            this.size = size;
+            this.epochSeconds = new long[size];
+            this.amountCents = new long[size];
+            this.vendorIds = new int[size];
+            this.descriptionIds = new int[size];
+            this.vendors = new String[vendorCount];
+            this.descriptions = new String[descriptionCount];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        // Materializes every row as a Transaction, in batch order
+        public List<Transaction> toTransactions() {
+            List<Transaction> transactions = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                transactions.add(new Transaction(epochSeconds[i], descriptions[descriptionIds[i]], vendors[vendorIds[i]], amountCents[i]));
+            }
+            return transactions;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.pluralsight.finance;
+
+import java.util.HashMap;
+import java.util.Locale;
+
+// Case-insensitive vendor index: each case-folded vendor name maps to the vendor dictionary
+// ids spelled that way, and each vendor id to the rows posted under it. The index is built
+// by the first vendor query, so loading the ledger never pays for it. From then on postings
+// add their rows as they are applied, and bulk loads of older years are caught up from the
+// snapshot of the next query. Queries and postings share it under the index's own lock.
+public class VendorIndex {
+    private final HashMap<String, IntList> vendorIdsByName;  // Case-folded name to vendor ids
+    private final Postings rows;  // Row ids for each vendor id
+    private int indexedVendors;  // Vendor ids below this have been added to vendorIdsByName
+    private int indexedRows;  // Rows below this have been added to the postings
+    private boolean built;  // Whether a query has used the index yet
+
+    public VendorIndex() {
+        this.vendorIdsByName = new HashMap<>();
+        this.rows = new Postings();
+    }
+
+    // Vendor ids in the snapshot whose name matches the vendor (case-insensitive)
+    public synchronized IntList findVendors(LedgerSnapshot snapshot, String vendor) {
+        catchUp(snapshot);
+        IntList matches = new IntList(1);
+        IntList ids = vendorIdsByName.get(vendor.toLowerCase(Locale.ROOT));
+        if (ids != null) {
+            for (int i = 0; i < ids.size() && ids.get(i) < snapshot.vendorCount(); i++) {
+                matches.add(ids.get(i));
+            }
+        }
+        return matches;
+    }
+
+    // Number of the snapshot's rows posted under any of the vendor ids
+    public synchronized int countRows(LedgerSnapshot snapshot, IntList vendorIds) {
+        catchUp(snapshot);
+        return rows.count(vendorIds, snapshot.size());
+    }
+
+    // The snapshot's rows posted under any of the vendor ids, not sorted
+    public synchronized int[] getRows(LedgerSnapshot snapshot, IntList vendorIds) {
+        catchUp(snapshot);
+        return rows.collect(vendorIds, snapshot.size());
+    }
+
+    // Adds the rows of a posting's snapshot, once a query has built the index; before that
+    // the first query indexes everything at once
+    public synchronized void update(LedgerSnapshot snapshot) {
+        if (built) {
+            catchUp(snapshot);
+        }
+    }
+
+    // Indexes the rows added since the last catch-up. A snapshot older than the index has
+    // nothing new; its queries just ignore the later rows.
+    private void catchUp(LedgerSnapshot snapshot) {
+        built = true;
+        for (int row = indexedRows; row < snapshot.size(); row++) {
+            int vendorId = snapshot.getVendorId(row);
+            while (indexedVendors <= vendorId) {
+                String folded = snapshot.getVendorName(indexedVendors).toLowerCase(Locale.ROOT);
+                vendorIdsByName.computeIfAbsent(folded, key -> new IntList(1)).add(indexedVendors);
+                indexedVendors++;
+            }
+            rows.add(vendorId, row);
+        }
+        indexedRows = Math.max(indexedRows, snapshot.size());
+    }
+}
@@ -0,0 +1,165 @@
+package com.pluralsight.finance;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs commands as a script would and checks what they print and their exit status
+class CommandLineTest {
+    @TempDir
+    Path directory;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    private int run(String... args) {
+        return runWithInput("", args);
+    }
+
+    // Runs the command with the text as standard input, e.g. for batch
+    private int runWithInput(String input, String... args) {
+        out.reset();
+        err.reset();
+        CommandLine commandLine = new CommandLine(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)),
+                new PrintStream(out, true, StandardCharsets.UTF_8), new PrintStream(err, true, StandardCharsets.UTF_8));
+        return commandLine.run(args);
+    }
+
+    private String out() {
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private String err() {
+        return err.toString(StandardCharsets.UTF_8);
+    }
+
+    // A ledger file with one transaction
+    private String ledger() throws IOException {
+        Path csv = directory.resolve("transactions.csv");
+        Files.writeString(csv, Ledger.CSV_HEADER + "\n2024-01-02|08:00:00|Opening balance|Bank|1000.00\n");
+        return csv.toString();
+    }
+
+    // A directory with the accounts alice and bob
+    private Path accounts() throws IOException {
+        Path accounts = Files.createDirectory(directory.resolve("accounts"));
+        Files.writeString(accounts.resolve("alice.csv"), Ledger.CSV_HEADER + "\n"
+                + "2024-01-02|08:00:00|Opening balance|Bank|1000.00\n"
+                + "2024-03-04|09:00:00|Invoice 1|Acme|-25.00\n");
+        Files.writeString(accounts.resolve("bob.csv"), Ledger.CSV_HEADER + "\n"
+                + "2024-02-03|08:00:00|Opening balance|Bank|500.00\n");
+        return accounts;
+    }
+
+    @Test
+    void reportsAcrossEveryAccount() throws IOException {
+        String accounts = accounts().toString();
+
+        assertEquals(0, run("--accounts", accounts, "report", "--format", "csv", "--limit", "2"));
+        assertEquals(Ledger.CSV_HEADER + "\n"
+                + "2024-03-04|09:00:00|Invoice 1|Acme|-25.00\n"
+                + "2024-02-03|08:00:00|Opening balance|Bank|500.00\n", out());
+
+        assertEquals(0, run("--accounts", accounts, "accounts", "--balance", "2024-02-28"));
+        String[] balances = out().split("\n");
+        assertEquals(4, balances.length);
+        assertTrue(balances[1].startsWith("alice") && balances[1].endsWith("1000.00"), balances[1]);
+        assertTrue(balances[3].startsWith("Total") && balances[3].endsWith("1500.00"), balances[3]);
+
+        assertEquals(0, run("--accounts", accounts, "accounts", "--vendors"));
+        assertEquals(3, out().split("\n").length);  // Header, Acme and Bank
+    }
+
+    @Test
+    void importCreatesANewAccount() throws IOException {
+        Path accounts = accounts();
+        Path file = directory.resolve("carol.csv");
+        Files.writeString(file, "2024-05-06|10:00:00|Opening balance|Bank|42.00\n");
+
+        assertEquals(0, run("--accounts", accounts.toString(), "import", "--account", "carol", file.toString()));
+        assertTrue(Files.exists(accounts.resolve("carol.csv")));
+        assertEquals(0, run("--accounts", accounts.toString(), "accounts"));
+        assertTrue(out().contains("carol"), out());
+    }
+
+    @Test
+    void accountsNeedsADirectory() {
+        assertEquals(2, run("--ledger", directory.resolve("transactions.csv").toString(), "accounts"));
+        assertTrue(err().contains("--accounts"), err());
+    }
+
+    @Test
+    void exitsWithZeroAfterAReport() throws IOException {
+        String ledger = ledger();
+        assertEquals(0, run("--ledger", ledger, "report", "--format", "csv"));
+        assertEquals(Ledger.CSV_HEADER + "\n2024-01-02|08:00:00|Opening balance|Bank|1000.00\n", out());
+        assertEquals("", err());
+    }
+
+    @Test
+    void exitsWithTwoForInvalidArguments() throws IOException {
+        String ledger = ledger();
+        assertEquals(2, run("--ledger", ledger, "report", "--weekly"));
+        assertTrue(err().contains("Unknown report option: --weekly"), err());
+        assertEquals(2, run("--ledger", ledger, "report", "--from", "yesterday"));
+        assertEquals(2, run("--ledger", ledger, "report", "--limit"));
+        assertEquals(2, run("--ledger", ledger, "audit"));
+        assertTrue(err().contains("Unknown command: audit"), err());
+        assertEquals(2, run("--ledger", ledger));
+        assertEquals(2, run("--ledger", ledger, "--accounts", directory.toString(), "report"));
+        assertEquals(2, run("--ledger", ledger, "import", directory.resolve("missing.csv").toString()));
+    }
+
+    @Test
+    void importsAFileWithoutAHeader() throws IOException {
+        String ledger = ledger();
+        Path file = directory.resolve("march.csv");
+        Files.writeString(file, "2024-03-04|09:00:00|Invoice 1|Acme|-25.00\n");
+
+        assertEquals(0, run("--ledger", ledger, "import", file.toString()));
+        assertEquals("Imported 1 transactions from " + file + "\n", out());
+        assertEquals(0, run("--ledger", ledger, "report", "--vendor", "Acme", "--format", "csv"));
+        assertTrue(out().contains("Invoice 1"), out());
+    }
+
+    @Test
+    void exitsWithOneWhenAnImportSkipsRows() throws IOException {
+        String ledger = ledger();
+        Path file = directory.resolve("march.csv");
+        Files.writeString(file, Ledger.CSV_HEADER + "\n"
+                + "2024-03-04|09:00:00|Invoice 1|Acme|-25.00\n"
+                + "2024-03-05|09:00:00|Invoice 2|Acme|lots\n");
+
+        assertEquals(1, run("--ledger", ledger, "import", file.toString()));
+        assertTrue(out().contains("Imported 1 transactions"), out());
+        assertTrue(err().contains("1 rows skipped") && err().contains("Invoice 2"), err());
+    }
+
+    @Test
+    void aBatchExitsWithItsWorstStatus() throws IOException {
+        String ledger = ledger();
+        String commands = "# Monthly reports\n"
+                + "report --ytd\n"
+                + "\n"
+                + "report --vendor \"Year Up\" --format csv\n";
+        assertEquals(0, runWithInput(commands, "--ledger", ledger, "batch"));
+
+        // The command after the failed one still runs
+        assertEquals(2, runWithInput("report --weekly\nreport --all --format csv\n", "--ledger", ledger, "batch"));
+        assertEquals(Ledger.CSV_HEADER + "\n2024-01-02|08:00:00|Opening balance|Bank|1000.00\n", out());
+
+        assertEquals(2, runWithInput("report --vendor \"Year Up\n", "--ledger", ledger, "batch"));
+        assertTrue(err().contains("line 1: Unclosed quote"), err());
+        assertEquals(2, runWithInput("batch\n", "--ledger", ledger, "batch"));
+    }
+}
@@ -0,0 +1,109 @@
+package com.pluralsight.finance;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvLedgerLoaderTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void keepsRowsThatCrossAChunkBoundary() throws IOException {
+        // About 10 MB of rows with varying lengths, so the 8 MB chunk boundary lands inside a row
+        Path csv = directory.resolve("large.csv");
+        int rows = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            writer.write(Ledger.CSV_HEADER + "\n");
+            for (long bytes = 0; bytes < 10L * 1024 * 1024; rows++) {
+                String line = line(rows);
+                writer.write(line);
+                bytes += line.length();
+            }
+        }
+
+        CsvLedgerLoader loader = new CsvLedgerLoader();
+        List<Transaction> transactions = loader.load(csv);
+
+        assertEquals(Ledger.CSV_HEADER, loader.getHeader());
+        assertTrue(loader.getRejected().isEmpty());
+        assertEquals(rows, transactions.size());
+        for (int i = 0; i < rows; i++) {
+            assertEquals(line(i), transactions.get(i).toCSVFormat() + "\n");
+        }
+    }
+
+    private static String line(int i) {
+        String padding = "x".repeat(i % 23);
+        return String.format("2024-%02d-%02d|%02d:%02d:%02d|Invoice %d %s|Vendor %d|%d.%02d\n",
+                i % 12 + 1, i % 28 + 1, i % 24, i % 60, i % 59, i, padding, i % 97, i % 5000 - 2500, i % 100);
+    }
+
+    @Test
+    void skipsAndKeepsRowsThatCannotBeParsed() throws IOException {
+        Path csv = directory.resolve("damaged.csv");
+        Files.writeString(csv, Ledger.CSV_HEADER + "\n"
+                + "2024-03-05|10:00:00|Invoice 7|Acme|125.50\n"
+                + "2024-03-06|Office chairs|Staples|-89.99\n"
+                + "2024-03-07|09:00:00|Lunch|Deli|twelve\r\n"
+                + "2024-03-08|12:00:00|Paper|Staples|-5.00\n");
+
+        CsvLedgerLoader loader = new CsvLedgerLoader();
+        List<Transaction> transactions = loader.load(csv);
+
+        assertEquals(2, transactions.size());
+        assertEquals(List.of("2024-03-06|Office chairs|Staples|-89.99", "2024-03-07|09:00:00|Lunch|Deli|twelve"),
+                loader.getRejected());
+    }
+
+    @Test
+    void ledgerImportReportsAndCountsSkippedRows() throws IOException {
+        Path csv = directory.resolve("transactions.csv");
+        Files.writeString(csv, Ledger.CSV_HEADER + "\n2024-01-02|08:00:00|Opening balance|Bank|1000.00\n");
+        Path imported = directory.resolve("import.csv");
+        Files.writeString(imported, Ledger.CSV_HEADER + "\n"
+                + "2024-03-05|10:00:00|Invoice 7|Acme|125.50\n"
+                + "not a transaction\n");
+
+        Ledger ledger = new Ledger(csv.toString());
+        ledger.loadTransactionsFromCSV();
+        try {
+            List<String> rejected = new ArrayList<>();
+            assertEquals(1, ledger.importCSV(imported.toString(), rejected));
+            assertEquals(List.of("not a transaction"), rejected);
+            assertEquals(1, ledger.getMetrics().getCounter(LedgerMetrics.ROWS_REJECTED));
+            assertEquals(2, ledger.size());
+        } finally {
+            ledger.close();
+        }
+    }
+
+    @Test
+    void readsTheFirstLineAsARowWhenItIsNotTheHeader() throws IOException {
+        Path csv = directory.resolve("headerless.csv");
+        Files.writeString(csv, "2024-03-05|10:00:00|Invoice 7|Acme|125.50\n");
+
+        CsvLedgerLoader loader = new CsvLedgerLoader();
+        List<Transaction> transactions = loader.load(csv);
+
+        assertEquals(1, transactions.size());
+        assertEquals("2024-03-05|10:00:00|Invoice 7|Acme|125.50", transactions.get(0).toCSVFormat());
+        assertNull(loader.getHeader());
+
+        // The header is recognized whatever its case
+        Files.writeString(csv, "Date|Time|Description|Vendor|Amount\r\n2024-03-05|10:00:00|Invoice 7|Acme|125.50\r\n");
+        assertEquals(1, loader.load(csv).size());
+        assertEquals("Date|Time|Description|Vendor|Amount", loader.getHeader());
+    }
+}
@@ -0,0 +1,66 @@
+package com.pluralsight.finance;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DescriptionIndexTest {
+    private static Transaction transaction(String date, String description) {
+        return Transaction.fromCSVFormat(date + "|10:00:00|" + description + "|Acme|1.00");
+    }
+
+    // Descriptions with the given ids in the snapshot
+    private static List<String> names(LedgerSnapshot snapshot, IntList ids) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            names.add(snapshot.getDescriptionName(ids.get(i)));
+        }
+        return names;
+    }
+
+    @Test
+    void findsDescriptionsContainingTheText() {
+        TransactionStore store = new TransactionStore();
+        store.addAll(List.of(
+                transaction("2024-03-01", "Invoice 1001 paid"),
+                transaction("2024-03-02", "Office chairs for the office"),
+                transaction("2024-03-03", "INVOICE 1002"),
+                transaction("2024-03-04", "Invoice 1001 paid")));
+
+        LedgerSnapshot snapshot = store.snapshot();
+        IntList invoices = snapshot.findDescriptionIds("invoice");
+        assertEquals(List.of("Invoice 1001 paid", "INVOICE 1002"), names(snapshot, invoices));
+        assertEquals(3, snapshot.countDescriptionRows(invoices));
+        assertArrayEquals(new int[]{0, 2, 3}, snapshot.getDescriptionRows(invoices));
+
+        // Every gram occurs in the description, but not in this order
+        assertEquals(0, snapshot.findDescriptionIds("the office chairs").size());
+        // Shorter than a trigram, so the descriptions are checked directly
+        assertEquals(List.of("Office chairs for the office"), names(snapshot, snapshot.findDescriptionIds("ch")));
+        assertEquals(0, snapshot.findDescriptionIds("refund").size());
+    }
+
+    @Test
+    void catchesUpWithRowsAddedAfterItWasBuilt() {
+        TransactionStore store = new TransactionStore();
+        store.add(transaction("2024-03-01", "Invoice 1001"));
+        LedgerSnapshot before = store.snapshot();
+        assertEquals(1, before.countDescriptionRows(before.findDescriptionIds("invoice")));  // Builds the index
+
+        store.addAll(List.of(transaction("2024-03-02", "Invoice 1002"), transaction("2024-03-03", "Invoice 1001")));
+
+        LedgerSnapshot after = store.snapshot();
+        IntList invoices = after.findDescriptionIds("invoice");
+        assertEquals(List.of("Invoice 1001", "Invoice 1002"), names(after, invoices));
+        assertArrayEquals(new int[]{0, 1, 2}, after.getDescriptionRows(invoices));
+
+        // The earlier snapshot sees neither the new description nor the new rows
+        IntList beforeInvoices = before.findDescriptionIds("invoice");
+        assertEquals(List.of("Invoice 1001"), names(before, beforeInvoices));
+        assertEquals(1, before.countDescriptionRows(beforeInvoices));
+    }
+}
@@ -0,0 +1,111 @@
+package com.pluralsight.finance;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Compares the parallel group-by with a plain loop over the same transactions. The ledger is
+// large enough to be split into several chunks.
+class LedgerAggregatorTest {
+    private static final String[] KEYWORDS = {"Invoice", "Refund", "payment", "PAYMENT"};
+
+    private static TransactionStore store;
+    private static List<Transaction> transactions;
+
+    @BeforeAll
+    static void fillStore() {
+        Random random = new Random(7);
+        transactions = new ArrayList<>();
+        LocalDate first = LocalDate.of(2022, 1, 1);
+        for (int i = 0; i < 150_000; i++) {
+            LocalDate day = first.plusDays(random.nextInt(3 * 365));
+            int vendor = random.nextInt(40);
+            String vendorName = (random.nextBoolean() ? "Vendor " : "VENDOR ") + vendor;
+            String description = KEYWORDS[random.nextInt(KEYWORDS.length)] + " " + random.nextInt(500);
+            long cents = random.nextInt(200_000) - 100_000;
+            transactions.add(new Transaction(day.atTime(random.nextInt(24), 0), description, vendorName, cents));
+        }
+        store = new TransactionStore();
+        store.addAll(transactions);
+    }
+
+    // Expected groups as "label|count|sum|min|max", in the order the aggregator reports them
+    private static List<String> expected(Function<Transaction, String> label, Predicate<Transaction> filter) {
+        TreeMap<String, long[]> groups = new TreeMap<>();
+        for (Transaction t : transactions) {
+            if (!filter.test(t)) {
+                continue;
+            }
+            long cents = t.getAmountCents();
+            long[] group = groups.computeIfAbsent(label.apply(t), key -> new long[]{0, 0, Long.MAX_VALUE, Long.MIN_VALUE});
+            group[0]++;
+            group[1] += cents;
+            group[2] = Math.min(group[2], cents);
+            group[3] = Math.max(group[3], cents);
+        }
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, long[]> entry : groups.entrySet()) {
+            long[] group = entry.getValue();
+            lines.add(entry.getKey() + "|" + group[0] + "|" + group[1] + "|" + group[2] + "|" + group[3]);
+        }
+        return lines;
+    }
+
+    private static List<String> actual(List<GroupTotals> groups) {
+        List<String> lines = new ArrayList<>();
+        for (GroupTotals group : groups) {
+            lines.add(group.getLabel().toLowerCase(Locale.ROOT) + "|" + group.getCount() + "|" + group.getSumCents()
+                    + "|" + group.getMinCents() + "|" + group.getMaxCents());
+        }
+        return lines;
+    }
+
+    private static List<GroupTotals> aggregateAll(LedgerAggregator.GroupBy by) {
+        LedgerSnapshot snapshot = store.snapshot();
+        return new LedgerAggregator().aggregate(snapshot, null, 0, snapshot.size(), row -> true, by);
+    }
+
+    private static String date(Transaction t) {
+        return t.toCSVFormat().substring(0, 10);
+    }
+
+    @Test
+    void groupsTheWholeLedger() {
+        assertEquals(expected(t -> t.getVendor().toLowerCase(Locale.ROOT), t -> true),
+                actual(aggregateAll(LedgerAggregator.GroupBy.VENDOR)));
+        assertEquals(expected(t -> date(t).substring(0, 7), t -> true),
+                actual(aggregateAll(LedgerAggregator.GroupBy.MONTH)));
+        assertEquals(expected(t -> date(t).substring(0, 4), t -> true),
+                actual(aggregateAll(LedgerAggregator.GroupBy.YEAR)));
+        assertEquals(expected(t -> t.getDescription().split(" ")[0].toLowerCase(Locale.ROOT), t -> true),
+                actual(aggregateAll(LedgerAggregator.GroupBy.KEYWORD)));
+    }
+
+    @Test
+    void groupsOnlyTheRowsAQuerySelects() {
+        LedgerMetrics metrics = new LedgerMetrics();
+
+        // A time slice of the order
+        LedgerQuery year = new LedgerQuery(store.snapshot(), metrics, new ReportCache(0))
+                .between(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 12, 31)).payments();
+        assertEquals(expected(t -> date(t).substring(0, 7), t -> date(t).startsWith("2023") && t.getAmountCents() < 0),
+                actual(year.groupBy(LedgerAggregator.GroupBy.MONTH)));
+
+        // Rows from the vendor index
+        LedgerQuery vendor = new LedgerQuery(store.snapshot(), metrics, new ReportCache(0)).vendor("vendor 3");
+        assertEquals(expected(t -> t.getDescription().split(" ")[0].toLowerCase(Locale.ROOT),
+                        t -> t.getVendor().equalsIgnoreCase("vendor 3")),
+                actual(vendor.groupBy(LedgerAggregator.GroupBy.KEYWORD)));
+    }
+}
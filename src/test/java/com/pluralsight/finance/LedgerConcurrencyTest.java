@@ -0,0 +1,102 @@
+package com.pluralsight.finance;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Many threads post deposits and payments at once while another reads reports
+class LedgerConcurrencyTest {
+    private static final int WRITERS = 8;
+    private static final int POSTINGS_PER_WRITER = 250;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void concurrentPostingsAreAllAppliedAndJournaled() throws Exception {
+        Path csv = directory.resolve("transactions.csv");
+        Files.writeString(csv, "date|time|description|vendor|amount\n2024-01-02|08:00:00|Opening balance|Bank|1000.00\n");
+        Ledger ledger = new Ledger(csv.toString());
+        ledger.loadTransactionsFromCSV();
+
+        ExecutorService threads = Executors.newFixedThreadPool(WRITERS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int w = 0; w < WRITERS; w++) {
+                String vendor = "Writer " + w;
+                writers.add(threads.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < POSTINGS_PER_WRITER; i++) {
+                        if (i % 2 == 0) {
+                            ledger.addDeposit(new String[]{"Deposit " + i, vendor, "2.00"});
+                        } else {
+                            ledger.makePayment(new String[]{"Payment " + i, vendor, "-0.50"});
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            // Every report reads one snapshot: it never shrinks, and it is always in time order
+            Future<Integer> reader = threads.submit(() -> {
+                start.await();
+                int reports = 0;
+                int lastCount = 0;
+                while (writing.get()) {
+                    List<Transaction> rows = new ArrayList<>();
+                    ledger.query().stream().forEach(rows::add);
+                    assertTrue(rows.size() >= lastCount, "a later report lost rows");
+                    for (int i = 1; i < rows.size(); i++) {
+                        assertTrue(rows.get(i - 1).getEpochSecond() >= rows.get(i).getEpochSecond(), "report out of order");
+                    }
+                    lastCount = rows.size();
+                    reports++;
+                }
+                return reports;
+            });
+
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get(1, TimeUnit.MINUTES);
+            }
+            writing.set(false);
+            assertTrue(reader.get(1, TimeUnit.MINUTES) > 0);
+        } finally {
+            threads.shutdownNow();
+            ledger.close();
+        }
+
+        // Each writer nets 125 * 2.00 - 125 * 0.50 = 187.50 on top of the opening balance
+        int expectedRows = 1 + WRITERS * POSTINGS_PER_WRITER;
+        long expectedBalance = 100000 + WRITERS * 18750;
+        assertEquals(expectedRows, ledger.size());
+
+        // Everything was journaled: a fresh start replays the same ledger
+        Ledger reloaded = new Ledger(csv.toString());
+        reloaded.loadTransactionsFromCSV();
+        try {
+            assertEquals(expectedRows, reloaded.getTransactions().size());
+            assertEquals(expectedBalance, reloaded.balanceAsOf(LocalDate.now()));
+            assertEquals(POSTINGS_PER_WRITER, reloaded.query().vendor("writer 3").count());
+        } finally {
+            reloaded.close();
+        }
+    }
+}
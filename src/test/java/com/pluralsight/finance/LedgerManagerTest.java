@@ -0,0 +1,104 @@
+package com.pluralsight.finance;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Four accounts of the same size: alice, bob, carol and dave
+class LedgerManagerTest {
+    private static final List<String> ACCOUNTS = List.of("alice", "bob", "carol", "dave");
+
+    @TempDir
+    Path directory;
+
+    // Each account has a deposit on 2024-01-0N and a payment on 2024-02-0N, where N is its
+    // place in the list, both with the vendor Bank
+    @BeforeEach
+    void writeAccounts() throws IOException {
+        for (int i = 0; i < ACCOUNTS.size(); i++) {
+            int day = i + 1;
+            Files.writeString(directory.resolve(ACCOUNTS.get(i) + ".csv"), Ledger.CSV_HEADER + "\n"
+                    + "2024-01-0" + day + "|08:00:00|Deposit|Bank|" + day + "00.00\n"
+                    + "2024-02-0" + day + "|08:00:00|Fee|BANK|-" + day + ".00\n");
+        }
+    }
+
+    @Test
+    void fansOutToEveryAccount() {
+        LedgerManager manager = new LedgerManager(directory.toString(), Long.MAX_VALUE, 2);
+        try {
+            assertEquals(Map.of("alice", 10000L, "bob", 20000L, "carol", 30000L, "dave", 40000L),
+                    manager.balancesAsOf(LocalDate.of(2024, 1, 31)));
+
+            List<LedgerTotals> accounts = manager.accountTotals();
+            assertEquals(ACCOUNTS, accounts.stream().map(LedgerTotals::getLabel).collect(Collectors.toList()));
+            assertEquals(2, accounts.get(2).getCount());
+            assertEquals(29700, accounts.get(2).getNetCents());
+
+            // Both spellings of the vendor in every account are one row
+            List<LedgerTotals> vendors = manager.vendorTotals();
+            assertEquals(1, vendors.size());
+            assertEquals(8, vendors.get(0).getCount());
+            assertEquals(-1000, vendors.get(0).getPaymentCents());
+
+            List<Transaction> fees = manager.mostRecent(ledger -> ledger.query().payments(), 3);
+            assertEquals(List.of(-400L, -300L, -200L), fees.stream().map(Transaction::getAmountCents).collect(Collectors.toList()));
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedAccountButNotAPinnedOne() {
+        long accountBytes;
+        LedgerManager measuring = new LedgerManager(directory.toString(), Long.MAX_VALUE);
+        try {
+            measuring.withLedger("alice", Ledger::size);
+            accountBytes = measuring.getLoadedBytes();
+        } finally {
+            measuring.close();
+        }
+        assertTrue(accountBytes > 0);
+
+        // Room for two accounts, not three
+        LedgerManager manager = new LedgerManager(directory.toString(), accountBytes * 5 / 2);
+        try {
+            manager.withLedger("alice", ledger -> {
+                ledger.addDeposit(new String[]{"Late deposit", "Bank", "1.00"});
+                return null;
+            });
+            manager.withLedger("bob", Ledger::size);
+            assertEquals(Set.of("alice", "bob"), manager.getLoadedAccounts());
+
+            manager.withLedger("carol", Ledger::size);
+            assertEquals(Set.of("bob", "carol"), manager.getLoadedAccounts());
+
+            // Bob stays pinned while dave and then alice load. Carol goes first; after that bob is
+            // the least recently used, but it is skipped and dave goes instead.
+            manager.withLedger("bob", bob -> {
+                manager.withLedger("dave", Ledger::size);
+                assertEquals(Set.of("bob", "dave"), manager.getLoadedAccounts());
+                // Alice's journal was flushed when it was closed, so the posting comes back
+                assertEquals(3, (int) manager.withLedger("alice", alice -> alice.query().count()));
+                assertEquals(Set.of("alice", "bob"), manager.getLoadedAccounts());
+                return null;
+            });
+            assertEquals(Set.of("alice", "bob"), manager.getLoadedAccounts());
+            assertTrue(manager.getLoadedBytes() <= accountBytes * 5 / 2);
+        } finally {
+            manager.close();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.pluralsight.finance;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// The planner is checked through the rows-scanned counter: it equals the number of candidates
+// read from whichever source (time slice, vendor index or description index) was chosen
+class LedgerQueryTest {
+    private TransactionStore store;
+    private LedgerMetrics metrics;
+
+    // One row a day from 2024-01-01 for 100 days. Days 10, 50 and 90 are from Rare, the other
+    // even days from Common and the odd ones from Other; days 50 and 70 are special orders.
+    @BeforeEach
+    void fillStore() {
+        store = new TransactionStore();
+        metrics = new LedgerMetrics();
+        List<Transaction> transactions = new ArrayList<>();
+        LocalDate day = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < 100; i++, day = day.plusDays(1)) {
+            String vendor = i % 40 == 10 ? "Rare" : i % 2 == 0 ? "Common" : "Other";
+            String description = i == 50 || i == 70 ? "Special order " + i : "Invoice " + i;
+            String amount = (i % 3 == 0 ? "-" : "") + (i + 1) + ".00";
+            transactions.add(Transaction.fromCSVFormat(day + "|10:00:00|" + description + "|" + vendor + "|" + amount));
+        }
+        store.addAll(transactions);
+    }
+
+    private LedgerQuery query() {
+        return new LedgerQuery(store.snapshot(), metrics, new ReportCache(0));
+    }
+
+    // Runs the query and returns the number of candidates it scanned
+    private long scanned(LedgerQuery query) {
+        long before = metrics.getCounter(LedgerMetrics.ROWS_SCANNED);
+        query.count();
+        return metrics.getCounter(LedgerMetrics.ROWS_SCANNED) - before;
+    }
+
+    private static List<String> descriptions(LedgerQuery query) {
+        return query.stream().map(Transaction::getDescription).collect(Collectors.toList());
+    }
+
+    @Test
+    void readsOnlyTheTimeSliceOfADateRange() {
+        LedgerQuery march = query().between(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31));
+        assertEquals(31, scanned(march));
+        assertEquals(31, march.count());
+
+        LedgerQuery lastDays = query().between(LocalDate.of(2024, 4, 8), null);
+        assertEquals(List.of("Invoice 99", "Invoice 98"), descriptions(lastDays));
+    }
+
+    @Test
+    void readsTheVendorIndexForARareVendor() {
+        LedgerQuery rare = query().vendor("rare");
+        assertEquals(3, scanned(rare));
+        assertEquals(List.of("Invoice 90", "Special order 50", "Invoice 10"), descriptions(rare));
+    }
+
+    @Test
+    void readsTheDescriptionIndexWhenItHasFewerRows() {
+        LedgerQuery special = query().vendor("Common").descriptionContains("SPECIAL");
+        assertEquals(2, scanned(special));
+        assertEquals(List.of("Special order 70"), descriptions(special));
+    }
+
+    @Test
+    void readsTheTimeSliceWhenItIsNarrowerThanTheIndexes() {
+        LedgerQuery day = query().vendor("Common").between(LocalDate.of(2024, 1, 3), LocalDate.of(2024, 1, 3));
+        assertEquals(1, scanned(day));
+        assertEquals(List.of("Invoice 2"), descriptions(day));
+    }
+
+    @Test
+    void checksTheRemainingConditionsOnEveryCandidate() {
+        LedgerQuery payments = query().vendor("Other").payments().between(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31));
+        assertEquals(List.of("Invoice 27", "Invoice 21", "Invoice 15", "Invoice 9", "Invoice 3"), descriptions(payments));
+
+        assertEquals(List.of("Invoice 41"), descriptions(query().amountCents(4200)));
+        assertEquals(0, scanned(query().vendor("Nobody")));
+    }
+}
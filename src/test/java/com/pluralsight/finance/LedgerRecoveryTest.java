@@ -0,0 +1,114 @@
+package com.pluralsight.finance;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Restarts after crashes at each step of a compaction: the journal rotated but the segments
+// not yet written, and the journal retired but the new segments not yet renamed into place
+class LedgerRecoveryTest {
+    @TempDir
+    Path directory;
+
+    private Path csv;
+    private Path segment;  // Segment file of 2023, the year every test row is in
+    private Path tempSegment;
+    private Path journalPath;
+
+    @BeforeEach
+    void importCsv() throws IOException {
+        csv = directory.resolve("transactions.csv");
+        segment = directory.resolve("transactions.2023.ldg");
+        tempSegment = directory.resolve("transactions.2023.ldg.tmp");
+        journalPath = directory.resolve("transactions.journal");
+        Files.writeString(csv, "date|time|description|vendor|amount\n"
+                + "2023-05-01|09:00:00|Invoice 1|Acme|500.00\n"
+                + "2023-05-02|10:00:00|Rent|Landlord|-850.00\n");
+
+        // The first start imports the CSV file and writes the segment before close returns
+        Ledger ledger = new Ledger(csv.toString());
+        ledger.loadTransactionsFromCSV();
+        ledger.close();
+        assertTrue(Files.exists(segment));
+    }
+
+    private List<String> reload() {
+        Ledger ledger = new Ledger(csv.toString());
+        ledger.loadTransactionsFromCSV();
+        try {
+            List<String> rows = new ArrayList<>();
+            for (Transaction t : ledger.getTransactions()) {
+                rows.add(t.toCSVFormat());
+            }
+            return rows;
+        } finally {
+            ledger.close();
+        }
+    }
+
+    @Test
+    void finishesACompactionThatCrashedBeforeWritingTheSegments() throws IOException {
+        // The journal was rotated to .old, and the crash left half a temp segment behind
+        TransactionJournal journal = new TransactionJournal(journalPath.toString(), 32, 50);
+        journal.open();
+        journal.appendAll(List.of(Transaction.fromCSVFormat("2023-05-03|11:00:00|Invoice 2|Acme|250.00")));
+        journal.close();
+        Files.move(journalPath, journal.getCompactingPath());
+        Files.write(tempSegment, new byte[]{'L', 'D', 'G', 'R', 1, 0});
+
+        List<String> expected = List.of(
+                "2023-05-03|11:00:00|Invoice 2|Acme|250.00",
+                "2023-05-02|10:00:00|Rent|Landlord|-850.00",
+                "2023-05-01|09:00:00|Invoice 1|Acme|500.00");
+        assertEquals(expected, reload());
+
+        // The restart finished the compaction: the rotated journal is folded into the segment
+        assertFalse(Files.exists(journal.getCompactingPath()));
+        assertFalse(Files.exists(tempSegment));
+        assertEquals(3, LedgerSegmentFile.read(segment).toTransactions().size());
+        assertEquals(expected, reload());  // And nothing is replayed twice
+    }
+
+    @Test
+    void commitsSegmentsWrittenBeforeTheCrash() throws IOException {
+        Path before = directory.resolve("before.ldg");
+        Files.copy(segment, before);
+
+        Ledger ledger = new Ledger(csv.toString());
+        ledger.loadTransactionsFromCSV();
+        ledger.postAll(List.of(Transaction.fromCSVFormat("2023-05-03|11:00:00|Invoice 2|Acme|250.00")));
+        ledger.compact();
+        ledger.close();  // Waits for the compaction
+
+        // Put the disk back to the moment after the journal was retired and before the rename
+        Files.move(segment, tempSegment);
+        Files.copy(before, segment, StandardCopyOption.REPLACE_EXISTING);
+        assertFalse(Files.exists(directory.resolve("transactions.journal" + TransactionJournal.COMPACTING_SUFFIX)));
+
+        List<String> rows = reload();
+        assertEquals(3, rows.size());
+        assertEquals("2023-05-03|11:00:00|Invoice 2|Acme|250.00", rows.get(0));
+        assertFalse(Files.exists(tempSegment));
+    }
+
+    @Test
+    void dropsAnUnfinishedTempSegmentWhenNothingWasRetired() throws IOException {
+        // A crash while a segment was still being written, with no rotated journal to finish
+        Files.write(tempSegment, new byte[]{'L', 'D', 'G', 'R', 1, 0});
+
+        assertEquals(2, reload().size());
+        assertFalse(Files.exists(tempSegment));
+        assertEquals(2, LedgerSegmentFile.read(segment).toTransactions().size());
+    }
+}
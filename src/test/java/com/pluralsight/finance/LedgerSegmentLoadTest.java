@@ -0,0 +1,81 @@
+package com.pluralsight.finance;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// A restart reads only the current year's segment; queries read older years only as far back
+// as their first day
+class LedgerSegmentLoadTest {
+    @TempDir
+    Path directory;
+
+    private int thisYear;
+    private Ledger ledger;
+
+    // One row in each of the three years before this one and one on January 1st of this year
+    @BeforeEach
+    void writeSegments() throws IOException {
+        thisYear = LocalDate.now().getYear();
+        StringBuilder rows = new StringBuilder(Ledger.CSV_HEADER + "\n");
+        for (int year = thisYear - 3; year <= thisYear; year++) {
+            rows.append(year).append("-01-01|09:00:00|Invoice ").append(year).append("|Acme|10.00\n");
+        }
+        Path csv = directory.resolve("transactions.csv");
+        Files.writeString(csv, rows);
+
+        // The first start imports the CSV file and writes every segment before close returns
+        Ledger first = new Ledger(csv.toString());
+        first.loadTransactionsFromCSV();
+        first.close();
+
+        ledger = new Ledger(csv.toString());
+        ledger.loadTransactionsFromCSV();
+    }
+
+    @AfterEach
+    void closeLedger() {
+        ledger.close();
+    }
+
+    private long segmentsLoaded() {
+        for (OperationStats operation : ledger.getMetrics().getOperations()) {
+            if (operation.getName().equals(LedgerMetrics.SEGMENT_LOAD)) {
+                return operation.getCount();
+            }
+        }
+        return 0;
+    }
+
+    @Test
+    void anExplicitStartDateReadsOnlyTheYearsFromIt() {
+        assertEquals(1, ledger.size());
+        assertEquals(1, segmentsLoaded());  // This year's
+
+        LedgerQuery lastYear = ledger.query(LocalDate.of(thisYear - 1, 1, 1));
+        assertEquals(2, lastYear.count());
+        assertEquals(2, ledger.size());
+        assertEquals(2, segmentsLoaded());
+
+        // The report's --from goes the same way
+        ReportRequest request = ReportRequest.parse(List.of("--from", (thisYear - 2) + "-06-01", "--format", "csv"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        request.writeTo(ledger, out);
+        assertEquals(3, out.toString().split("\n").length);  // Header and two rows
+        assertEquals(3, ledger.size());
+        assertEquals(3, segmentsLoaded());
+
+        assertEquals(4, ledger.query().count());
+        assertEquals(4, segmentsLoaded());
+    }
+}
@@ -0,0 +1,149 @@
+package com.pluralsight.finance;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Posts and reports over HTTP against a server on a free localhost port
+class LedgerServerTest {
+    @TempDir
+    Path directory;
+
+    private Ledger ledger;
+    private LedgerServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        Path csv = directory.resolve("transactions.csv");
+        Files.writeString(csv, "date|time|description|vendor|amount\n2024-01-02|08:00:00|Opening balance|Bank|1000.00\n");
+        ledger = new Ledger(csv.toString());
+        ledger.loadTransactionsFromCSV();
+        server = new LedgerServer(ledger, 0);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+        ledger.close();
+    }
+
+    private HttpResponse<String> get(String pathAndQuery) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri(pathAndQuery)).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String pathAndQuery, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri(pathAndQuery)).POST(HttpRequest.BodyPublishers.ofString(body)).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String pathAndQuery) {
+        return URI.create("http://localhost:" + server.getPort() + pathAndQuery);
+    }
+
+    @Test
+    void reportsWhatWasPosted() throws IOException, InterruptedException {
+        HttpResponse<String> posted = post("/transactions", "date|time|description|vendor|amount\n"
+                + "2024-03-05|10:00:00|Invoice 7|Acme|125.50\n"
+                + "\n"
+                + "2024-03-06|11:15:00|Office chairs|Staples|-89.99\n");
+        assertEquals(201, posted.statusCode());
+        assertEquals("Posted 2 transactions\n", posted.body());
+
+        HttpResponse<String> report = get("/report?all&format=csv");
+        assertEquals(200, report.statusCode());
+        assertEquals("date|time|description|vendor|amount\n"
+                + "2024-03-06|11:15:00|Office chairs|Staples|-89.99\n"
+                + "2024-03-05|10:00:00|Invoice 7|Acme|125.50\n"
+                + "2024-01-02|08:00:00|Opening balance|Bank|1000.00\n", report.body());
+
+        HttpResponse<String> vendor = get("/report?vendor=Acme&format=csv");
+        assertEquals("date|time|description|vendor|amount\n"
+                + "2024-03-05|10:00:00|Invoice 7|Acme|125.50\n", vendor.body());
+
+        HttpResponse<String> balance = get("/balance?date=2024-03-31");
+        assertEquals(200, balance.statusCode());
+        assertEquals("2024-03-31|1035.51\n", balance.body());
+    }
+
+    @Test
+    void rejectsABatchWithAnInvalidLine() throws IOException, InterruptedException {
+        HttpResponse<String> posted = post("/transactions", "2024-03-05|10:00:00|Invoice 7|Acme|125.50\n"
+                + "2024-03-06|11:15:00|Office chairs|Staples|lots\n");
+        assertEquals(400, posted.statusCode());
+
+        // All or nothing: the valid line was not posted either
+        assertEquals("2024-03-31|1000.00\n", get("/balance?date=2024-03-31").body());
+    }
+
+    @Test
+    void answersBadRequestsWithoutStartingAResponse() throws IOException, InterruptedException {
+        assertEquals(400, get("/report?nonsense").statusCode());
+        assertEquals(400, get("/report?from=yesterday").statusCode());
+        assertEquals(405, post("/report", "").statusCode());
+        assertEquals(404, get("/unknown").statusCode());
+    }
+
+    @Test
+    void countsAFailedRequestAndAnswersWithItsMessage() throws IOException, InterruptedException {
+        ledger.close();  // Postings now fail to reach the journal
+
+        HttpResponse<String> posted = post("/transactions", "2024-03-05|10:00:00|Invoice 7|Acme|125.50\n");
+        assertEquals(500, posted.statusCode());
+        assertEquals(1, posted.body().lines().count(), posted.body());  // The message, not a stack trace
+
+        long failures = 0;
+        for (Map.Entry<String, Long> counter : ledger.getMetrics().getCounters().entrySet()) {
+            if (counter.getKey().startsWith(LedgerMetrics.SERVER_ERRORS)) {
+                failures += counter.getValue();
+            }
+        }
+        assertEquals(1, failures);
+    }
+
+    @Test
+    void servesEveryAccountOfAManager() throws IOException, InterruptedException {
+        Path accounts = Files.createDirectory(directory.resolve("accounts"));
+        Files.writeString(accounts.resolve("alice.csv"), "date|time|description|vendor|amount\n"
+                + "2024-01-02|08:00:00|Opening balance|Bank|1000.00\n");
+        Files.writeString(accounts.resolve("bob.csv"), "date|time|description|vendor|amount\n"
+                + "2024-02-03|08:00:00|Opening balance|Bank|500.00\n");
+        LedgerManager manager = new LedgerManager(accounts.toString(), Long.MAX_VALUE);
+        server.stop();
+        server = new LedgerServer(manager, 0);
+        server.start();
+        try {
+            assertEquals(201, post("/accounts/bob/transactions", "2024-03-05|10:00:00|Invoice 7|Acme|-25.00\n").statusCode());
+
+            HttpResponse<String> report = get("/report?format=csv&limit=2");
+            assertEquals(200, report.statusCode());
+            assertEquals("date|time|description|vendor|amount\n"
+                    + "2024-03-05|10:00:00|Invoice 7|Acme|-25.00\n"
+                    + "2024-02-03|08:00:00|Opening balance|Bank|500.00\n", report.body());
+
+            HttpResponse<String> balances = get("/accounts?balance=2024-03-31");
+            assertEquals(200, balances.statusCode());
+            assertEquals(String.format("%-20s %15s\n%-20s %15s\n%-20s %15s\n%-20s %15s\n",
+                    "Account", "Balance", "alice", "1000.00", "bob", "475.00", "Total", "1475.00"), balances.body());
+
+            assertEquals(400, get("/accounts?balance=soon").statusCode());
+            assertEquals(404, get("/accounts/carol/report").statusCode());
+        } finally {
+            manager.close();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.pluralsight.finance;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LedgerTimeTest {
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    // Times around the edges the civil-date arithmetic has to get right: the epoch, leap days,
+    // century years and the ends of months and years
+    private static final LocalDateTime[] SAMPLES = {
+            LocalDateTime.of(1970, 1, 1, 0, 0, 0),
+            LocalDateTime.of(1969, 12, 31, 23, 59, 59),
+            LocalDateTime.of(1900, 2, 28, 12, 0, 0),
+            LocalDateTime.of(1900, 3, 1, 0, 0, 0),
+            LocalDateTime.of(2000, 2, 29, 6, 30, 15),
+            LocalDateTime.of(2024, 2, 29, 23, 59, 59),
+            LocalDateTime.of(2024, 3, 1, 0, 0, 0),
+            LocalDateTime.of(2024, 12, 31, 23, 59, 59),
+            LocalDateTime.of(2100, 2, 28, 1, 2, 3),
+            LocalDateTime.of(2400, 2, 29, 4, 5, 6),
+            LocalDateTime.of(1, 1, 1, 0, 0, 0),
+            LocalDateTime.of(9999, 12, 31, 23, 59, 59),
+    };
+
+    @Test
+    void parsesToTheSameInstantAsLocalDateTime() {
+        for (LocalDateTime ldt : SAMPLES) {
+            assertEquals(ldt.toEpochSecond(ZoneOffset.UTC), LedgerTime.parseEpochSecond(ldt.format(DATE), ldt.format(TIME)), ldt.toString());
+        }
+    }
+
+    @Test
+    void formatsTheSameTextAsLocalDateTime() {
+        for (LocalDateTime ldt : SAMPLES) {
+            long epochSecond = ldt.toEpochSecond(ZoneOffset.UTC);
+            assertEquals(ldt.format(DATE), LedgerTime.appendDate(new StringBuilder(), epochSecond).toString());
+            assertEquals(ldt.format(TIME), LedgerTime.appendTime(new StringBuilder(), epochSecond).toString());
+            assertEquals(ldt.getYear(), LedgerTime.year(epochSecond));
+        }
+    }
+
+    @Test
+    void roundTripsEveryDayOfFourCenturies() {
+        LocalDateTime ldt = LocalDateTime.of(1800, 1, 1, 13, 7, 42);
+        LocalDateTime end = LocalDateTime.of(2200, 1, 1, 0, 0, 0);
+        for (; ldt.isBefore(end); ldt = ldt.plusDays(1)) {
+            long epochSecond = ldt.toEpochSecond(ZoneOffset.UTC);
+            String date = LedgerTime.appendDate(new StringBuilder(), epochSecond).toString();
+            String time = LedgerTime.appendTime(new StringBuilder(), epochSecond).toString();
+            assertEquals(ldt.format(DATE), date);
+            assertEquals(epochSecond, LedgerTime.parseEpochSecond(date, time));
+        }
+    }
+
+    @Test
+    void fallsBackToLocalDateTimeForOtherShapes() {
+        LocalDateTime ldt = LocalDateTime.of(2024, 10, 18, 9, 30);
+        assertEquals(ldt.toEpochSecond(ZoneOffset.UTC), LedgerTime.parseEpochSecond("2024-10-18", "09:30"));
+    }
+
+    @Test
+    void rejectsDatesLocalDateTimeRejects() {
+        assertThrows(DateTimeException.class, () -> LedgerTime.parseEpochSecond("2023-02-29", "00:00:00"));
+        assertThrows(DateTimeException.class, () -> LedgerTime.parseEpochSecond("2024-13-01", "00:00:00"));
+        assertThrows(DateTimeException.class, () -> LedgerTime.parseEpochSecond("2024-04-31", "00:00:00"));
+        assertThrows(DateTimeException.class, () -> LedgerTime.parseEpochSecond("2024-01-01", "24:00:00"));
+        assertThrows(DateTimeException.class, () -> LedgerTime.parseEpochSecond("2024-01-01", "12:60:00"));
+    }
+}
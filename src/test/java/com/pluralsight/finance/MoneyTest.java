@@ -0,0 +1,63 @@
+package com.pluralsight.finance;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+    @Test
+    void parsesDecimalAmounts() {
+        assertEquals(-8950, Money.parseCents("-89.5"));
+        assertEquals(150000, Money.parseCents("1500"));
+        assertEquals(1234, Money.parseCents("12.34"));
+        assertEquals(120, Money.parseCents(" +1.2 "));
+        assertEquals(50, Money.parseCents(".5"));
+    }
+
+    @Test
+    void roundsTheThirdDecimalHalfUp() {
+        assertEquals(1235, Money.parseCents("12.345"));
+        assertEquals(1234, Money.parseCents("12.3449"));
+        assertEquals(100, Money.parseCents("0.995"));
+        assertEquals(-1235, Money.parseCents("-12.345"));
+    }
+
+    @Test
+    void rejectsInvalidAmounts() {
+        for (String text : new String[]{"", " ", "-", ".", "1.2.3", "abc", "12,50", "1e3"}) {
+            assertThrows(NumberFormatException.class, () -> Money.parseCents(text), text);
+        }
+    }
+
+    @Test
+    void rejectsAmountsTooLargeForALong() {
+        assertThrows(NumberFormatException.class, () -> Money.parseCents("92233720368547758.08"));
+        assertThrows(NumberFormatException.class, () -> Money.parseCents("-92233720368547758.09"));
+        assertThrows(NumberFormatException.class, () -> Money.parseCents("100000000000000000000"));
+    }
+
+    @Test
+    void formatsTwoDecimalPlaces() {
+        assertEquals("0.00", Money.format(0));
+        assertEquals("-89.50", Money.format(-8950));
+        assertEquals("0.05", Money.format(5));
+        assertEquals("-0.05", Money.format(-5));
+        assertEquals("92233720368547758.07", Money.format(Long.MAX_VALUE));
+        assertEquals("-92233720368547758.08", Money.format(Long.MIN_VALUE));
+    }
+
+    @Test
+    void formattedAmountsParseBack() {
+        long[] amounts = {0, 1, -1, 99, -99, 100, -100, 123456, -8950, Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE + 1};
+        for (long cents : amounts) {
+            String text = Money.format(cents);
+            assertEquals(cents, Money.parseCents(text), text);
+            ByteBuffer bytes = ByteBuffer.wrap(("|" + text + "|").getBytes(StandardCharsets.US_ASCII));
+            assertEquals(cents, Money.parseCents(bytes, 1, text.length() + 1), text);
+        }
+    }
+}
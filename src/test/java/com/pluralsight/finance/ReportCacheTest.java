@@ -0,0 +1,68 @@
+package com.pluralsight.finance;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ReportCacheTest {
+    @TempDir
+    Path directory;
+
+    private static ReportCache.Key vendorKey(String vendor) {
+        return new ReportCache.Key(Long.MIN_VALUE, Long.MAX_VALUE, null, vendor, false, 0, 0);
+    }
+
+    @Test
+    void aPostingDropsOnlyTheResultsItBelongsIn() {
+        ReportCache cache = new ReportCache(1000);
+        cache.put(vendorKey("Acme"), new int[]{0, 2}, 3);
+        cache.put(vendorKey("Staples"), new int[]{1}, 3);
+
+        cache.invalidate(List.of(Transaction.fromCSVFormat("2024-03-04|10:00:00|Invoice|ACME|1.00")), 4);
+        assertNull(cache.get(vendorKey("acme"), 4));
+        assertArrayEquals(new int[]{1}, cache.get(vendorKey("staples"), 4));
+
+        // A report that read the store before the posting cannot put its result back
+        cache.put(vendorKey("Acme"), new int[]{0, 2}, 3);
+        assertNull(cache.get(vendorKey("Acme"), 4));
+        cache.put(vendorKey("Acme"), new int[]{0, 2, 3}, 4);
+        assertArrayEquals(new int[]{0, 2, 3}, cache.get(vendorKey("Acme"), 4));
+    }
+
+    @Test
+    void aCachedReportIncludesALaterPosting() throws IOException {
+        Path csv = directory.resolve("transactions.csv");
+        Files.writeString(csv, Ledger.CSV_HEADER + "\n"
+                + "2024-01-02|08:00:00|Opening balance|Bank|1000.00\n"
+                + "2024-03-04|09:00:00|Invoice 1|Acme|-25.00\n");
+        Ledger ledger = new Ledger(csv.toString());
+        ledger.loadTransactionsFromCSV();
+        try {
+            LedgerMetrics metrics = ledger.getMetrics();
+            assertEquals(1, ledger.query().vendor("Acme").count());
+            assertEquals(1, ledger.query().vendor("Bank").count());
+            assertEquals(1, ledger.query().vendor("Acme").count());
+            assertEquals(1, metrics.getCounter(LedgerMetrics.CACHE_HITS));
+
+            ledger.makePayment(new String[]{"Invoice 2", "Acme", "-40.00"});
+            List<String> acme = ledger.query().vendor("Acme").stream()
+                    .map(Transaction::getDescription).collect(Collectors.toList());
+            assertEquals(List.of("Invoice 2", "Invoice 1"), acme);
+
+            // The bank's result was kept
+            assertEquals(1, ledger.query().vendor("Bank").count());
+            assertEquals(2, metrics.getCounter(LedgerMetrics.CACHE_HITS));
+        } finally {
+            ledger.close();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.pluralsight.finance;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransactionJournalTest {
+    @TempDir
+    Path directory;
+
+    // Writes two checksummed entries, then a copy of the first with its vendor changed (so its
+    // checksum no longer matches) between them, and a torn half line at the end
+    private List<String> writeDamagedJournal(Path journalPath) throws IOException {
+        TransactionJournal journal = new TransactionJournal(journalPath.toString(), 32, 50);
+        journal.open();
+        journal.appendAll(List.of(
+                Transaction.fromCSVFormat("2024-03-05|10:00:00|Invoice 7|Acme|125.50"),
+                Transaction.fromCSVFormat("2024-03-06|11:15:00|Office chairs|Staples|-89.99")));
+        journal.close();
+
+        List<String> lines = Files.readAllLines(journalPath, StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        String corrupt = lines.get(0).replace("|Acme|", "|Acne|");
+        String content = lines.get(0) + "\n" + corrupt + "\n" + lines.get(1) + "\n" + "2024-03-07|09:0";
+        Files.writeString(journalPath, content, StandardCharsets.UTF_8);
+        return List.of(corrupt);
+    }
+
+    @Test
+    void readSkipsCorruptLinesAndTheTornTail() throws IOException {
+        Path journalPath = directory.resolve("transactions.journal");
+        List<String> corrupt = writeDamagedJournal(journalPath);
+
+        List<String> rejected = new ArrayList<>();
+        List<Transaction> entries = TransactionJournal.readEntries(journalPath, rejected);
+
+        assertEquals(2, entries.size());
+        assertEquals("2024-03-05|10:00:00|Invoice 7|Acme|125.50", entries.get(0).toCSVFormat());
+        assertEquals("2024-03-06|11:15:00|Office chairs|Staples|-89.99", entries.get(1).toCSVFormat());
+        assertEquals(corrupt, rejected);  // The torn tail is not a rejected line, it was never written
+    }
+
+    @Test
+    void readsEntriesWithoutChecksums() throws IOException {
+        Path journalPath = directory.resolve("transactions.journal");
+        Files.writeString(journalPath, "2024-03-05|10:00:00|Invoice 7|Acme|125.50\n", StandardCharsets.UTF_8);
+
+        List<String> rejected = new ArrayList<>();
+        List<Transaction> entries = TransactionJournal.readEntries(journalPath, rejected);
+
+        assertEquals(1, entries.size());
+        assertTrue(rejected.isEmpty());
+    }
+
+    @Test
+    void ledgerReplaysTheJournalAndSetsCorruptLinesAside() throws IOException {
+        Path csv = directory.resolve("transactions.csv");
+        Files.writeString(csv, "date|time|description|vendor|amount\n2024-01-02|08:00:00|Opening balance|Bank|1000.00\n");
+        Path journalPath = directory.resolve("transactions.journal");
+        List<String> corrupt = writeDamagedJournal(journalPath);
+
+        // Load twice: the second start reads the same damaged line, which must not be set aside again
+        for (int start = 0; start < 2; start++) {
+            Ledger ledger = new Ledger(csv.toString());
+            ledger.loadTransactionsFromCSV();
+            try {
+                assertEquals(3, ledger.getTransactions().size());
+                assertEquals(103551, ledger.balanceAsOf(LocalDate.of(2024, 12, 31)));
+            } finally {
+                ledger.close();
+            }
+        }
+
+        Path rejectedPath = directory.resolve("transactions.journal" + TransactionJournal.REJECTED_SUFFIX);
+        assertEquals(corrupt, Files.readAllLines(rejectedPath, StandardCharsets.UTF_8));
+        assertTrue(Files.readString(journalPath).endsWith("\n"), "the torn tail is cut off when the journal is opened");
+    }
+
+    @Test
+    void keepsAcceptingAppendsAfterAFailedRotation() throws IOException {
+        Path journalPath = directory.resolve("transactions.journal");
+        TransactionJournal journal = new TransactionJournal(journalPath.toString(), 32, 50);
+        journal.open();
+        try {
+            journal.appendAll(List.of(Transaction.fromCSVFormat("2024-03-05|10:00:00|Invoice 7|Acme|125.50")));
+
+            // With the live file gone the move fails; the journal must reopen it rather than stay closed
+            Files.delete(journalPath);
+            assertThrows(RuntimeException.class, journal::rotate);
+
+            journal.appendAll(List.of(Transaction.fromCSVFormat("2024-03-06|11:15:00|Office chairs|Staples|-89.99")));
+            journal.sync();
+        } finally {
+            journal.close();
+        }
+
+        List<Transaction> entries = TransactionJournal.readEntries(journalPath, new ArrayList<>());
+        assertEquals(1, entries.size());
+        assertEquals("2024-03-06|11:15:00|Office chairs|Staples|-89.99", entries.get(0).toCSVFormat());
+    }
+}
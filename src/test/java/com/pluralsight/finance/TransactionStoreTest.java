@@ -0,0 +1,104 @@
+package com.pluralsight.finance;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TransactionStoreTest {
+    private static Transaction transaction(String date, String time, String description, String amount) {
+        return Transaction.fromCSVFormat(date + "|" + time + "|" + description + "|Acme|" + amount);
+    }
+
+    // Descriptions of the snapshot's rows in time order, oldest first
+    private static List<String> descriptionsInOrder(LedgerSnapshot snapshot) {
+        List<String> descriptions = new ArrayList<>();
+        for (int position = 0; position < snapshot.size(); position++) {
+            descriptions.add(snapshot.get(snapshot.rowAt(position)).getDescription());
+        }
+        return descriptions;
+    }
+
+    @Test
+    void placesSinglePostingsByTimeAndKeepsTiesInPostingOrder() {
+        TransactionStore store = new TransactionStore();
+        store.add(transaction("2024-03-05", "10:00:00", "b", "1.00"));
+        store.add(transaction("2024-03-07", "10:00:00", "d", "1.00"));
+        store.add(transaction("2024-03-01", "10:00:00", "a", "1.00"));
+        store.add(transaction("2024-03-05", "10:00:00", "c", "1.00"));
+
+        LedgerSnapshot snapshot = store.snapshot();
+        assertEquals(List.of("a", "b", "c", "d"), descriptionsInOrder(snapshot));
+        assertEquals("d", snapshot.get(snapshot.rowByMostRecent(0)).getDescription());
+    }
+
+    @Test
+    void mergesABatchIntoTheOrderAndRecomputesRunningBalances() {
+        TransactionStore store = new TransactionStore();
+        store.addAll(List.of(
+                transaction("2024-03-02", "10:00:00", "b", "10.00"),
+                transaction("2024-03-04", "10:00:00", "d", "-3.00"),
+                transaction("2024-03-06", "10:00:00", "f", "5.00")));
+
+        // Unsorted, and interleaved with the rows already there
+        store.addAll(List.of(
+                transaction("2024-03-07", "10:00:00", "g", "1.00"),
+                transaction("2024-03-01", "10:00:00", "a", "100.00"),
+                transaction("2024-03-05", "10:00:00", "e", "-20.00"),
+                transaction("2024-03-03", "10:00:00", "c", "2.00")));
+
+        LedgerSnapshot snapshot = store.snapshot();
+        assertEquals(List.of("a", "b", "c", "d", "e", "f", "g"), descriptionsInOrder(snapshot));
+        assertEquals(10000, snapshot.balanceBefore(at("2024-03-02")));
+        assertEquals(10900, snapshot.balanceBefore(at("2024-03-05")));
+        assertEquals(9500, snapshot.balanceBefore(at("2024-03-08")));
+
+        LedgerTotals march = snapshot.totalsBetween("march", at("2024-03-03"), at("2024-03-06"));
+        assertEquals(3, march.getCount());
+        assertEquals(200, march.getDepositCents());
+        assertEquals(-2300, march.getPaymentCents());
+    }
+
+    @Test
+    void appendsABatchNewerThanTheLedger() {
+        TransactionStore store = new TransactionStore();
+        store.add(transaction("2024-03-01", "10:00:00", "a", "1.00"));
+        store.addAll(List.of(
+                transaction("2024-03-03", "10:00:00", "c", "1.00"),
+                transaction("2024-03-02", "10:00:00", "b", "1.00")));
+
+        assertEquals(List.of("a", "b", "c"), descriptionsInOrder(store.snapshot()));
+        assertEquals(300, store.snapshot().balanceBefore(Long.MAX_VALUE));
+    }
+
+    private static long at(String date) {
+        return TransactionStore.toEpochSecond(LocalDate.parse(date).atStartOfDay());
+    }
+
+    @Test
+    void publishedSnapshotsDoNotChangeWhenOlderRowsArrive() {
+        TransactionStore store = new TransactionStore();
+        store.addAll(List.of(
+                transaction("2024-03-02", "10:00:00", "b", "10.00"),
+                transaction("2024-03-04", "10:00:00", "d", "20.00")));
+        LedgerSnapshot before = store.snapshot();
+
+        // Both go in front of published entries, so the order and running totals are copied
+        store.add(transaction("2024-03-03", "10:00:00", "c", "1.00"));
+        store.addAll(List.of(transaction("2024-03-01", "10:00:00", "a", "2.00")));
+
+        assertEquals(List.of("b", "d"), descriptionsInOrder(before));
+        assertEquals(3000, before.balanceBefore(Long.MAX_VALUE));
+        assertEquals(1000, before.balanceBefore(at("2024-03-04")));
+        assertEquals(2, before.vendorTotals(0).getCount());
+
+        LedgerSnapshot after = store.snapshot();
+        assertEquals(List.of("a", "b", "c", "d"), descriptionsInOrder(after));
+        assertEquals(3300, after.balanceBefore(Long.MAX_VALUE));
+        assertEquals(1300, after.balanceBefore(at("2024-03-04")));
+        assertEquals(4, after.vendorTotals(0).getCount());
+    }
+}
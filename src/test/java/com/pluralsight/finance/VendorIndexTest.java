@@ -0,0 +1,74 @@
+package com.pluralsight.finance;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VendorIndexTest {
+    private static Transaction transaction(String date, String vendor) {
+        return Transaction.fromCSVFormat(date + "|10:00:00|Invoice|" + vendor + "|1.00");
+    }
+
+    private static int[] sorted(int[] rows) {
+        int[] copy = rows.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    @Test
+    void findsEverySpellingOfAVendor() {
+        TransactionStore store = new TransactionStore();
+        store.addAll(List.of(
+                transaction("2024-03-01", "Acme"),
+                transaction("2024-03-02", "Staples"),
+                transaction("2024-03-03", "ACME")));
+
+        LedgerSnapshot snapshot = store.snapshot();
+        IntList acme = snapshot.findVendorIds("acme");
+        assertEquals(2, acme.size());
+        assertEquals(2, snapshot.countVendorRows(acme));
+        assertArrayEquals(new int[]{0, 2}, sorted(snapshot.getVendorRows(acme)));
+        assertEquals(0, snapshot.findVendorIds("Office Depot").size());
+    }
+
+    @Test
+    void postingsExtendTheIndexAndOlderSnapshotsIgnoreThem() {
+        TransactionStore store = new TransactionStore();
+        store.addAll(List.of(transaction("2024-03-01", "Acme"), transaction("2024-03-02", "Staples")));
+        LedgerSnapshot before = store.snapshot();
+        assertEquals(1, before.countVendorRows(before.findVendorIds("acme")));  // Builds the index
+
+        store.add(transaction("2024-03-04", "acme"));  // A new spelling
+        store.addAll(List.of(transaction("2024-03-05", "Acme"), transaction("2024-03-03", "Staples")));
+
+        LedgerSnapshot after = store.snapshot();
+        IntList acme = after.findVendorIds("ACME");
+        assertEquals(2, acme.size());
+        assertArrayEquals(new int[]{0, 2, 3}, sorted(after.getVendorRows(acme)));
+
+        // The earlier snapshot sees neither the new spelling nor the new rows
+        IntList beforeAcme = before.findVendorIds("acme");
+        assertEquals(1, beforeAcme.size());
+        assertArrayEquals(new int[]{0}, before.getVendorRows(beforeAcme));
+    }
+
+    @Test
+    void catchesUpWithRowsLoadedInBulk() {
+        TransactionStore store = new TransactionStore();
+        store.add(transaction("2024-03-01", "Acme"));
+        LedgerSnapshot first = store.snapshot();
+        assertEquals(1, first.countVendorRows(first.findVendorIds("acme")));
+
+        // Columns from an older year's segment bypass the posting path
+        TransactionStore older = new TransactionStore();
+        older.addAll(List.of(transaction("2023-06-01", "Acme"), transaction("2023-07-01", "Acme")));
+        store.addColumns(older.snapshot().toColumns(Long.MIN_VALUE, Long.MAX_VALUE));
+
+        LedgerSnapshot loaded = store.snapshot();
+        assertEquals(3, loaded.countVendorRows(loaded.findVendorIds("Acme")));
+    }
+}